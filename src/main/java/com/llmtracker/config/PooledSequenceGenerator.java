@@ -0,0 +1,36 @@
+package com.llmtracker.config;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence generator whose allocation size comes from configuration instead of the mapping, so
+ * every entity shares one tunable block size. Ids are allocated with the pooled-lo optimizer,
+ * which keeps inserts batchable and needs only one sequence call per block.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String ALLOCATION_SIZE_SETTING = "llmtracker.id.allocation_size";
+
+    private static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        ConfigurationService configurationService = serviceRegistry.requireService(ConfigurationService.class);
+        int allocationSize = configurationService.getSetting(
+            ALLOCATION_SIZE_SETTING, StandardConverters.INTEGER, DEFAULT_ALLOCATION_SIZE);
+
+        parameters.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        parameters.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
@@ -2,6 +2,7 @@ package com.llmtracker.config;
 
 import com.llmtracker.security.JwtAuthenticationFilter;
 import com.llmtracker.service.CustomUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -41,10 +42,11 @@ public class SecurityConfig {
             .csrf(AbstractHttpConfigurer::disable)
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .authorizeHttpRequests(auth -> auth
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                 .requestMatchers("/actuator/**").permitAll()
-                .requestMatchers("/api/events").hasAnyRole("SUPERADMIN", "ADMIN", "USER")
+                .requestMatchers("/api/events", "/api/events/**").hasAnyRole("SUPERADMIN", "ADMIN", "USER")
                 .requestMatchers("/api/analytics/**").hasAnyRole("SUPERADMIN", "ADMIN", "USER")
                 .requestMatchers("/api/customers/**").hasAnyRole("SUPERADMIN", "ADMIN")
                 .requestMatchers("/api/users/**").hasAnyRole("SUPERADMIN", "ADMIN")
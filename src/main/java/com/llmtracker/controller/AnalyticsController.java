@@ -6,13 +6,17 @@ import com.llmtracker.security.CustomUserDetails;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -31,7 +35,8 @@ public class AnalyticsController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) String customerId,
             @RequestParam(required = false) String userId,
-            @RequestParam(required = false) String vendor) {
+            @RequestParam(required = false) String vendor,
+            @RequestParam(defaultValue = "10") int topN) {
         
         String currentUserCustomerId = getCurrentUserCustomerId();
         
@@ -41,8 +46,7 @@ public class AnalyticsController {
             return ResponseEntity.status(403).build();
         }
         
-        AnalyticsResponse response = usageEventService.getAnalytics(period, startDate, endDate, customerId, userId, vendor);
-        return ResponseEntity.ok(response);
+        return analytics(period, startDate, endDate, customerId, userId, vendor, topN);
     }
 
     @GetMapping("/costs")
@@ -53,7 +57,8 @@ public class AnalyticsController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) String customerId,
             @RequestParam(required = false) String userId,
-            @RequestParam(required = false) String vendor) {
+            @RequestParam(required = false) String vendor,
+            @RequestParam(defaultValue = "10") int topN) {
         
         String currentUserCustomerId = getCurrentUserCustomerId();
         
@@ -63,8 +68,7 @@ public class AnalyticsController {
             return ResponseEntity.status(403).build();
         }
         
-        AnalyticsResponse response = usageEventService.getAnalytics(period, startDate, endDate, customerId, userId, vendor);
-        return ResponseEntity.ok(response);
+        return analytics(period, startDate, endDate, customerId, userId, vendor, topN);
     }
 
     @GetMapping("/revenue")
@@ -75,7 +79,8 @@ public class AnalyticsController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) String customerId,
             @RequestParam(required = false) String userId,
-            @RequestParam(required = false) String vendor) {
+            @RequestParam(required = false) String vendor,
+            @RequestParam(defaultValue = "10") int topN) {
         
         String currentUserCustomerId = getCurrentUserCustomerId();
         
@@ -85,10 +90,22 @@ public class AnalyticsController {
             return ResponseEntity.status(403).build();
         }
         
-        AnalyticsResponse response = usageEventService.getAnalytics(period, startDate, endDate, customerId, userId, vendor);
-        return ResponseEntity.ok(response);
+        return analytics(period, startDate, endDate, customerId, userId, vendor, topN);
     }
     
+    private ResponseEntity<AnalyticsResponse> analytics(String period, LocalDate startDate, LocalDate endDate,
+                                                        String customerId, String userId, String vendor, int topN) {
+        try {
+            return ResponseEntity.ok(usageEventService.getAnalytics(period, startDate, endDate, customerId, userId, vendor, topN));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (QueryTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     private String getCurrentUserCustomerId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails) {
@@ -3,6 +3,7 @@ package com.llmtracker.controller;
 import com.llmtracker.entity.Customer;
 import com.llmtracker.repository.CustomerRepository;
 import com.llmtracker.security.CustomUserDetails;
+import com.llmtracker.service.IngestEntityResolver;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -25,6 +26,9 @@ public class CustomerController {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private IngestEntityResolver entityResolver;
+
     @GetMapping
     @Operation(summary = "Get all customers", description = "Get a list of all active customers")
     public ResponseEntity<List<Customer>> getAllCustomers() {
@@ -83,6 +87,7 @@ public class CustomerController {
             customer.setActive(customerDetails.getActive());
             
             Customer updatedCustomer = customerRepository.save(customer);
+            entityResolver.evictCustomer(customerId);
             return ResponseEntity.ok(updatedCustomer);
         } else {
             return ResponseEntity.notFound().build();
@@ -102,6 +107,7 @@ public class CustomerController {
             Customer c = customer.get();
             c.setActive(false);
             customerRepository.save(c);
+            entityResolver.evictCustomer(customerId);
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -1,24 +1,40 @@
 package com.llmtracker.controller;
 
+import com.llmtracker.dto.BatchIngestResponse;
+import com.llmtracker.dto.StreamIngestResponse;
+import com.llmtracker.dto.UsageEventFilter;
 import com.llmtracker.dto.UsageEventRequest;
 import com.llmtracker.dto.UsageEventResponse;
+import com.llmtracker.dto.UsageEventSliceResponse;
+import com.llmtracker.service.AsyncIngestService;
+import com.llmtracker.service.StreamIngestService;
+import com.llmtracker.service.UsageEventExportService;
 import com.llmtracker.service.UsageEventService;
 import com.llmtracker.security.CustomUserDetails;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/events")
@@ -29,16 +45,62 @@ public class UsageEventController {
     @Autowired
     private UsageEventService usageEventService;
 
+    @Autowired
+    private AsyncIngestService asyncIngestService;
+
+    @Autowired
+    private StreamIngestService streamIngestService;
+
+    @Autowired
+    private UsageEventExportService usageEventExportService;
+
+    @Value("${ingest.batch.max-size:1000}")
+    private int maxBatchSize;
+
     @PostMapping
-    @Operation(summary = "Submit a usage event", description = "Submit a new LLM usage event with cost calculation")
+    @Operation(summary = "Submit a usage event", description = "Submit a new LLM usage event with cost calculation; returns 202 Accepted when async ingest is enabled")
     public ResponseEntity<UsageEventResponse> submitEvent(@Valid @RequestBody UsageEventRequest request) {
+        if (asyncIngestService.isEnabled()) {
+            UsageEventResponse accepted = asyncIngestService.enqueue(request);
+            if (accepted == null) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(accepted);
+        }
+
         UsageEventResponse response = usageEventService.processUsageEvent(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Submit a batch of usage events", description = "Submit multiple LLM usage events in one request; each item is validated and reported individually")
+    public ResponseEntity<BatchIngestResponse> submitEventBatch(@RequestBody List<UsageEventRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (requests.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+
+        BatchIngestResponse response = usageEventService.processUsageEventBatch(requests);
+        HttpStatus status = response.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(response);
+    }
+
+    @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream usage events", description = "Submit newline-delimited JSON usage events; records are persisted in chunks while the upload is read and rejected lines are reported by line number")
+    public ResponseEntity<StreamIngestResponse> submitEventStream(InputStream body) throws IOException {
+        StreamIngestResponse response = streamIngestService.ingest(body);
+        if (response.getAccepted() == 0 && response.getRejected() == 0) {
+            return ResponseEntity.badRequest().body(response);
+        }
+        HttpStatus status = response.getRejected() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(response);
+    }
+
     @GetMapping
-    @Operation(summary = "Get usage events", description = "Get usage events with optional filters")
-    public ResponseEntity<Page<UsageEventResponse>> getEvents(
+    @Operation(summary = "Get usage events", description = "Get usage events with optional filters. Passing cursor (empty for the first slice) switches to keyset paging: the response carries nextCursor instead of page totals")
+    public ResponseEntity<?> getEvents(
             @RequestParam(required = false) String customerId,
             @RequestParam(required = false) String userId,
             @RequestParam(required = false) String vendor,
@@ -47,7 +109,8 @@ public class UsageEventController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
         
         String currentUserCustomerId = getCurrentUserCustomerId();
         
@@ -57,17 +120,83 @@ public class UsageEventController {
             return ResponseEntity.status(403).build();
         }
         
+        UsageEventFilter filter = new UsageEventFilter(customerId, userId, vendor, model, apiType, startDate, endDate);
+
+        if (cursor != null) {
+            if (size < 1) {
+                return ResponseEntity.badRequest().build();
+            }
+            try {
+                UsageEventSliceResponse slice = usageEventService.getUsageEventSlice(filter, cursor, size);
+                return ResponseEntity.ok(slice);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
         Pageable pageable = PageRequest.of(page, size);
-        Page<UsageEventResponse> events = usageEventService.getUsageEvents(
-            customerId, userId, vendor, model, apiType, startDate, endDate, pageable);
+        Page<UsageEventResponse> events = usageEventService.getUsageEvents(filter, pageable);
         
         return ResponseEntity.ok(events);
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "Export usage events", description = "Stream usage events matching the list filters as CSV or NDJSON, optionally gzip-compressed")
+    public ResponseEntity<StreamingResponseBody> exportEvents(
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String vendor,
+            @RequestParam(required = false) String model,
+            @RequestParam(required = false) String apiType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        if (!UsageEventExportService.isSupportedFormat(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String currentUserCustomerId = getCurrentUserCustomerId();
+
+        customerId = resolveCustomerId(customerId, currentUserCustomerId);
+
+        if (!canAccessCustomerData(customerId, currentUserCustomerId)) {
+            return ResponseEntity.status(403).build();
+        }
+
+        UsageEventFilter filter = new UsageEventFilter(customerId, userId, vendor, model, apiType, startDate, endDate);
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                usageEventExportService.export(filter, format, compressed);
+                compressed.finish();
+            } else {
+                usageEventExportService.export(filter, format, out);
+            }
+        };
+
+        String filename = "usage-events." + format + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+            : UsageEventExportService.FORMAT_CSV.equals(format) ? MediaType.parseMediaType("text/csv")
+            : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .body(body);
+    }
+
     @GetMapping("/{eventId}")
     @Operation(summary = "Get event by ID", description = "Get a specific usage event by its ID")
     public ResponseEntity<UsageEventResponse> getEventById(@PathVariable String eventId) {
-        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        UsageEventResponse event = usageEventService.getUsageEvent(eventId);
+        if (event == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!isCurrentUserSuperAdmin() && !Objects.equals(event.getCustomerId(), getCurrentUserCustomerId())) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(event);
     }
     
     private String getCurrentUserCustomerId() {
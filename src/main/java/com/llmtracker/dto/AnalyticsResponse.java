@@ -2,6 +2,7 @@ package com.llmtracker.dto;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -45,13 +46,18 @@ public class AnalyticsResponse {
     private Map<String, Long> usageByEndpoint;
     private Map<String, Long> usageByUserRole;
 
+    private DistinctCounts distinctCounts;
+
     public static class TimeSeriesData {
         private LocalDate date;
+        private LocalDateTime timestamp;
         private Long events;
         private Long tokens;
         private BigDecimal cost;
         private BigDecimal revenue;
         private BigDecimal profit;
+        private Long activeUsers;
+        private Long sessions;
 
         public TimeSeriesData() {}
 
@@ -62,6 +68,9 @@ public class AnalyticsResponse {
         public LocalDate getDate() { return date; }
         public void setDate(LocalDate date) { this.date = date; }
 
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+
         public Long getEvents() { return events; }
         public void setEvents(Long events) { this.events = events; }
 
@@ -76,6 +85,12 @@ public class AnalyticsResponse {
 
         public BigDecimal getProfit() { return profit; }
         public void setProfit(BigDecimal profit) { this.profit = profit; }
+
+        public Long getActiveUsers() { return activeUsers; }
+        public void setActiveUsers(Long activeUsers) { this.activeUsers = activeUsers; }
+
+        public Long getSessions() { return sessions; }
+        public void setSessions(Long sessions) { this.sessions = sessions; }
     }
 
     public static class CustomerMetrics {
@@ -168,6 +183,44 @@ public class AnalyticsResponse {
         public void setProfit(BigDecimal profit) { this.profit = profit; }
     }
 
+    /**
+     * Distinct users and sessions, estimated from HyperLogLog sketches. An estimate is within one
+     * {@code relativeStandardError} (about 1.6%) of the true count about 65% of the time and within
+     * three about 99% of the time; the error is 0 when the counts are exact (user filter).
+     */
+    public static class DistinctCounts {
+        private Long activeUsers;
+        private Long sessions;
+        private Map<String, Long> activeUsersByVendor;
+        private Map<String, Long> sessionsByVendor;
+        private Map<String, Long> activeUsersByModel;
+        private Map<String, Long> sessionsByModel;
+        private Double relativeStandardError;
+
+        public DistinctCounts() {}
+
+        public Long getActiveUsers() { return activeUsers; }
+        public void setActiveUsers(Long activeUsers) { this.activeUsers = activeUsers; }
+
+        public Long getSessions() { return sessions; }
+        public void setSessions(Long sessions) { this.sessions = sessions; }
+
+        public Map<String, Long> getActiveUsersByVendor() { return activeUsersByVendor; }
+        public void setActiveUsersByVendor(Map<String, Long> activeUsersByVendor) { this.activeUsersByVendor = activeUsersByVendor; }
+
+        public Map<String, Long> getSessionsByVendor() { return sessionsByVendor; }
+        public void setSessionsByVendor(Map<String, Long> sessionsByVendor) { this.sessionsByVendor = sessionsByVendor; }
+
+        public Map<String, Long> getActiveUsersByModel() { return activeUsersByModel; }
+        public void setActiveUsersByModel(Map<String, Long> activeUsersByModel) { this.activeUsersByModel = activeUsersByModel; }
+
+        public Map<String, Long> getSessionsByModel() { return sessionsByModel; }
+        public void setSessionsByModel(Map<String, Long> sessionsByModel) { this.sessionsByModel = sessionsByModel; }
+
+        public Double getRelativeStandardError() { return relativeStandardError; }
+        public void setRelativeStandardError(Double relativeStandardError) { this.relativeStandardError = relativeStandardError; }
+    }
+
     public static class GrowthMetrics {
         private BigDecimal eventsGrowth;
         private BigDecimal tokensGrowth;
@@ -218,20 +271,36 @@ public class AnalyticsResponse {
         public void setPredictedProfit(BigDecimal predictedProfit) { this.predictedProfit = predictedProfit; }
     }
 
+    /**
+     * A customer's day whose value of {@code metric} (events, tokens or cost) deviated from its
+     * baseline for that day of week by {@code score} deviations.
+     */
     public static class Anomaly {
         private LocalDate date;
+        private String customerId;
         private String type;
         private String metric;
+        private Double value;
+        private Double expected;
+        private Double score;
         private String description;
 
         public Anomaly() {}
 
         public LocalDate getDate() { return date; }
         public void setDate(LocalDate date) { this.date = date; }
+        public String getCustomerId() { return customerId; }
+        public void setCustomerId(String customerId) { this.customerId = customerId; }
         public String getType() { return type; }
         public void setType(String type) { this.type = type; }
         public String getMetric() { return metric; }
         public void setMetric(String metric) { this.metric = metric; }
+        public Double getValue() { return value; }
+        public void setValue(Double value) { this.value = value; }
+        public Double getExpected() { return expected; }
+        public void setExpected(Double expected) { this.expected = expected; }
+        public Double getScore() { return score; }
+        public void setScore(Double score) { this.score = score; }
         public String getDescription() { return description; }
         public void setDescription(String description) { this.description = description; }
     }
@@ -255,6 +324,10 @@ public class AnalyticsResponse {
         private Double costPerToken;
         private Double revenuePerToken;
         private Double profitPerToken;
+        private Percentiles tokensPerEvent;
+        private Percentiles costPerEventPercentiles;
+        private Percentiles audioMinutesPerEvent;
+        private Double percentileRelativeAccuracy;
 
         public EfficiencyMetrics() {}
 
@@ -270,6 +343,41 @@ public class AnalyticsResponse {
         public void setRevenuePerToken(Double revenuePerToken) { this.revenuePerToken = revenuePerToken; }
         public Double getProfitPerToken() { return profitPerToken; }
         public void setProfitPerToken(Double profitPerToken) { this.profitPerToken = profitPerToken; }
+        public Percentiles getTokensPerEvent() { return tokensPerEvent; }
+        public void setTokensPerEvent(Percentiles tokensPerEvent) { this.tokensPerEvent = tokensPerEvent; }
+        public Percentiles getCostPerEventPercentiles() { return costPerEventPercentiles; }
+        public void setCostPerEventPercentiles(Percentiles costPerEventPercentiles) { this.costPerEventPercentiles = costPerEventPercentiles; }
+        public Percentiles getAudioMinutesPerEvent() { return audioMinutesPerEvent; }
+        public void setAudioMinutesPerEvent(Percentiles audioMinutesPerEvent) { this.audioMinutesPerEvent = audioMinutesPerEvent; }
+        public Double getPercentileRelativeAccuracy() { return percentileRelativeAccuracy; }
+        public void setPercentileRelativeAccuracy(Double percentileRelativeAccuracy) { this.percentileRelativeAccuracy = percentileRelativeAccuracy; }
+    }
+
+    /**
+     * p50, p90 and p99 of a per-event value. The values are null when no event in the range has
+     * one (audio minutes are only set on audio events).
+     */
+    public static class Percentiles {
+        private Double p50;
+        private Double p90;
+        private Double p99;
+
+        public Percentiles() {}
+
+        public Percentiles(Double p50, Double p90, Double p99) {
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+        }
+
+        public Double getP50() { return p50; }
+        public void setP50(Double p50) { this.p50 = p50; }
+
+        public Double getP90() { return p90; }
+        public void setP90(Double p90) { this.p90 = p90; }
+
+        public Double getP99() { return p99; }
+        public void setP99(Double p99) { this.p99 = p99; }
     }
 
     public AnalyticsResponse() {}
@@ -357,4 +465,7 @@ public class AnalyticsResponse {
 
     public Map<String, Long> getUsageByUserRole() { return usageByUserRole; }
     public void setUsageByUserRole(Map<String, Long> usageByUserRole) { this.usageByUserRole = usageByUserRole; }
+
+    public DistinctCounts getDistinctCounts() { return distinctCounts; }
+    public void setDistinctCounts(DistinctCounts distinctCounts) { this.distinctCounts = distinctCounts; }
 }
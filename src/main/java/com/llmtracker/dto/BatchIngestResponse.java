@@ -0,0 +1,68 @@
+package com.llmtracker.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchIngestResponse {
+
+    private int received;
+    private int succeeded;
+    private int failed;
+    private List<ItemResult> results = new ArrayList<>();
+
+    public static class ItemResult {
+        private int index;
+        private String eventId;
+        private String status;
+        private String error;
+
+        public ItemResult() {}
+
+        public ItemResult(int index, String eventId, String status, String error) {
+            this.index = index;
+            this.eventId = eventId;
+            this.status = status;
+            this.error = error;
+        }
+
+        public int getIndex() { return index; }
+        public void setIndex(int index) { this.index = index; }
+
+        public String getEventId() { return eventId; }
+        public void setEventId(String eventId) { this.eventId = eventId; }
+
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+
+    public BatchIngestResponse() {}
+
+    public BatchIngestResponse(int received) {
+        this.received = received;
+    }
+
+    public void addSuccess(int index, String eventId) {
+        results.add(new ItemResult(index, eventId, "created", null));
+        succeeded++;
+    }
+
+    public void addFailure(int index, String error) {
+        results.add(new ItemResult(index, null, "failed", error));
+        failed++;
+    }
+
+    public int getReceived() { return received; }
+    public void setReceived(int received) { this.received = received; }
+
+    public int getSucceeded() { return succeeded; }
+    public void setSucceeded(int succeeded) { this.succeeded = succeeded; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public List<ItemResult> getResults() { return results; }
+    public void setResults(List<ItemResult> results) { this.results = results; }
+}
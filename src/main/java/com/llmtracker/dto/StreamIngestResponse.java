@@ -0,0 +1,61 @@
+package com.llmtracker.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StreamIngestResponse {
+
+    private long linesRead;
+    private long accepted;
+    private long rejected;
+    private boolean rejectedLinesTruncated;
+    private List<RejectedLine> rejectedLines = new ArrayList<>();
+
+    public static class RejectedLine {
+        private long line;
+        private String error;
+
+        public RejectedLine() {}
+
+        public RejectedLine(long line, String error) {
+            this.line = line;
+            this.error = error;
+        }
+
+        public long getLine() { return line; }
+        public void setLine(long line) { this.line = line; }
+
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+
+    public StreamIngestResponse() {}
+
+    public void addAccepted(long count) {
+        accepted += count;
+    }
+
+    public void addRejected(long line, String error, int maxReported) {
+        rejected++;
+        if (rejectedLines.size() < maxReported) {
+            rejectedLines.add(new RejectedLine(line, error));
+        } else {
+            rejectedLinesTruncated = true;
+        }
+    }
+
+    public long getLinesRead() { return linesRead; }
+    public void setLinesRead(long linesRead) { this.linesRead = linesRead; }
+
+    public long getAccepted() { return accepted; }
+    public void setAccepted(long accepted) { this.accepted = accepted; }
+
+    public long getRejected() { return rejected; }
+    public void setRejected(long rejected) { this.rejected = rejected; }
+
+    public boolean isRejectedLinesTruncated() { return rejectedLinesTruncated; }
+    public void setRejectedLinesTruncated(boolean rejectedLinesTruncated) { this.rejectedLinesTruncated = rejectedLinesTruncated; }
+
+    public List<RejectedLine> getRejectedLines() { return rejectedLines; }
+    public void setRejectedLines(List<RejectedLine> rejectedLines) { this.rejectedLines = rejectedLines; }
+}
@@ -0,0 +1,48 @@
+package com.llmtracker.dto;
+
+import java.time.LocalDateTime;
+
+public class UsageEventFilter {
+
+    private String customerId;
+    private String userId;
+    private String vendor;
+    private String model;
+    private String apiType;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+
+    public UsageEventFilter() {}
+
+    public UsageEventFilter(String customerId, String userId, String vendor, String model, String apiType,
+                            LocalDateTime startDate, LocalDateTime endDate) {
+        this.customerId = customerId;
+        this.userId = userId;
+        this.vendor = vendor;
+        this.model = model;
+        this.apiType = apiType;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public String getCustomerId() { return customerId; }
+    public void setCustomerId(String customerId) { this.customerId = customerId; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getVendor() { return vendor; }
+    public void setVendor(String vendor) { this.vendor = vendor; }
+
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+
+    public String getApiType() { return apiType; }
+    public void setApiType(String apiType) { this.apiType = apiType; }
+
+    public LocalDateTime getStartDate() { return startDate; }
+    public void setStartDate(LocalDateTime startDate) { this.startDate = startDate; }
+
+    public LocalDateTime getEndDate() { return endDate; }
+    public void setEndDate(LocalDateTime endDate) { this.endDate = endDate; }
+}
@@ -1,10 +1,14 @@
 package com.llmtracker.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public class UsageEventResponse {
 
+    @JsonIgnore
+    private Long id;
     private String eventId;
     private String customerId;
     private String userId;
@@ -28,6 +32,7 @@ public class UsageEventResponse {
     private BigDecimal revenue;
     private BigDecimal profit;
     private String currency;
+    private Long pricingVersion;
     
     private String requestId;
     private String sessionId;
@@ -52,6 +57,9 @@ public class UsageEventResponse {
         this.timestamp = timestamp;
     }
 
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
     public String getEventId() { return eventId; }
     public void setEventId(String eventId) { this.eventId = eventId; }
 
@@ -115,6 +123,9 @@ public class UsageEventResponse {
     public String getCurrency() { return currency; }
     public void setCurrency(String currency) { this.currency = currency; }
 
+    public Long getPricingVersion() { return pricingVersion; }
+    public void setPricingVersion(Long pricingVersion) { this.pricingVersion = pricingVersion; }
+
     public String getRequestId() { return requestId; }
     public void setRequestId(String requestId) { this.requestId = requestId; }
 
@@ -0,0 +1,33 @@
+package com.llmtracker.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class UsageEventSliceResponse {
+
+    private List<UsageEventResponse> content = new ArrayList<>();
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public UsageEventSliceResponse() {}
+
+    public UsageEventSliceResponse(List<UsageEventResponse> content, int size, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = nextCursor != null;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UsageEventResponse> getContent() { return content; }
+    public void setContent(List<UsageEventResponse> content) { this.content = content; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
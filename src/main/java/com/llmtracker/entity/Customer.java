@@ -1,9 +1,12 @@
 package com.llmtracker.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.llmtracker.config.PooledSequenceGenerator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -17,7 +20,9 @@ import java.util.List;
 public class Customer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "customers_seq")
+    @GenericGenerator(name = "customers_seq", type = PooledSequenceGenerator.class,
+                      parameters = @Parameter(name = "sequence_name", value = "customers_seq"))
     private Long id;
 
     @NotBlank
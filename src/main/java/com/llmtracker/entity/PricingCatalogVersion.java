@@ -0,0 +1,45 @@
+package com.llmtracker.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "pricing_catalog_versions")
+public class PricingCatalogVersion {
+
+    @Id
+    private Long version;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String fingerprint;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public PricingCatalogVersion() {}
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,10 +1,13 @@
 package com.llmtracker.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.llmtracker.config.PooledSequenceGenerator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -17,7 +20,9 @@ import java.time.LocalDateTime;
 public class UsageEvent {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "usage_events_seq")
+    @GenericGenerator(name = "usage_events_seq", type = PooledSequenceGenerator.class,
+                      parameters = @Parameter(name = "sequence_name", value = "usage_events_seq"))
     private Long id;
 
     @NotBlank
@@ -81,6 +86,9 @@ public class UsageEvent {
     @Column(nullable = false)
     private String currency = "USD";
 
+    @Column
+    private Long pricingVersion;
+
     @Column
     private String requestId;
 
@@ -290,6 +298,14 @@ public class UsageEvent {
         this.currency = currency;
     }
 
+    public Long getPricingVersion() {
+        return pricingVersion;
+    }
+
+    public void setPricingVersion(Long pricingVersion) {
+        this.pricingVersion = pricingVersion;
+    }
+
     public String getRequestId() {
         return requestId;
     }
@@ -1,9 +1,12 @@
 package com.llmtracker.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.llmtracker.config.PooledSequenceGenerator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -16,8 +19,16 @@ import java.util.List;
 @EntityListeners(AuditingEntityListener.class)
 public class User {
 
+    /**
+     * Stored instead of a hash for users auto-provisioned by ingest. It is not a valid BCrypt
+     * hash, so password login fails until a real password is set through the user API.
+     */
+    public static final String NO_LOGIN_PASSWORD = "{no-login}";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "users_seq")
+    @GenericGenerator(name = "users_seq", type = PooledSequenceGenerator.class,
+                      parameters = @Parameter(name = "sequence_name", value = "users_seq"))
     private Long id;
 
     @NotBlank
@@ -1,9 +1,13 @@
 package com.llmtracker.entity;
 
+import com.llmtracker.config.PooledSequenceGenerator;
+import com.llmtracker.service.VendorPricingChangeListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -13,11 +17,13 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "vendor_pricing")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, VendorPricingChangeListener.class})
 public class VendorPricing {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "vendor_pricing_seq")
+    @GenericGenerator(name = "vendor_pricing_seq", type = PooledSequenceGenerator.class,
+                      parameters = @Parameter(name = "sequence_name", value = "vendor_pricing_seq"))
     private Long id;
 
     @NotBlank
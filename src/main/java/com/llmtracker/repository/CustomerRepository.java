@@ -2,10 +2,12 @@ package com.llmtracker.repository;
 
 import com.llmtracker.entity.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +15,16 @@ import java.util.Optional;
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     Optional<Customer> findByCustomerId(String customerId);
+
+    List<Customer> findByCustomerIdIn(Collection<String> customerIds);
+
+    @Modifying
+    @Query(value = "INSERT INTO customers (id, customer_id, organization_name, contact_email, contact_phone, address, " +
+                   "markup_percentage, active, created_at, updated_at) " +
+                   "VALUES (nextval('customers_seq'), :#{#c.customerId}, :#{#c.organizationName}, :#{#c.contactEmail}, " +
+                   ":#{#c.contactPhone}, :#{#c.address}, :#{#c.markupPercentage}, :#{#c.active}, :#{#c.createdAt}, :#{#c.updatedAt}) " +
+                   "ON CONFLICT (customer_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("c") Customer customer);
     
     List<Customer> findByActiveTrue();
     
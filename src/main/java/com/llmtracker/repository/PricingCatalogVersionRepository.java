@@ -0,0 +1,21 @@
+package com.llmtracker.repository;
+
+import com.llmtracker.entity.PricingCatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PricingCatalogVersionRepository extends JpaRepository<PricingCatalogVersion, Long> {
+
+    Optional<PricingCatalogVersion> findByFingerprint(String fingerprint);
+
+    @Modifying
+    @Query(value = "INSERT INTO pricing_catalog_versions (fingerprint, created_at) VALUES (:fingerprint, now()) " +
+                   "ON CONFLICT (fingerprint) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("fingerprint") String fingerprint);
+}
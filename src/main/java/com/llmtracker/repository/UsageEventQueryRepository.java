@@ -0,0 +1,31 @@
+package com.llmtracker.repository;
+
+import com.llmtracker.dto.UsageEventResponse;
+import com.llmtracker.entity.UsageEvent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Read paths that project usage events straight into {@link UsageEventResponse}, selecting only the
+ * response columns plus the external customer and user ids in a single query.
+ */
+public interface UsageEventQueryRepository {
+
+    Page<UsageEventResponse> findResponses(Specification<UsageEvent> spec, Pageable pageable);
+
+    List<UsageEventResponse> findResponses(Specification<UsageEvent> spec, Sort sort, int limit);
+
+    Optional<UsageEventResponse> findResponseByEventId(String eventId);
+
+    /**
+     * Streams matching rows through a server-side cursor, {@code fetchSize} rows per round trip.
+     * Must be called inside a transaction and the stream closed by the caller.
+     */
+    Stream<UsageEventResponse> streamResponses(Specification<UsageEvent> spec, Sort sort, int fetchSize);
+}
@@ -0,0 +1,150 @@
+package com.llmtracker.repository;
+
+import com.llmtracker.dto.UsageEventResponse;
+import com.llmtracker.entity.Customer;
+import com.llmtracker.entity.UsageEvent;
+import com.llmtracker.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class UsageEventQueryRepositoryImpl implements UsageEventQueryRepository {
+
+    private static final String[] EVENT_COLUMNS = {
+        "id", "eventId", "vendor", "model", "apiType", "region",
+        "inputTokens", "outputTokens", "totalTokens", "cachedTokens", "imageCount", "videoCount", "audioMinutes", "requestCount",
+        "inputCost", "outputCost", "totalCost", "revenue", "profit", "currency", "pricingVersion",
+        "requestId", "sessionId", "endpoint", "status", "errorMessage", "metadata", "timestamp", "createdAt"
+    };
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<UsageEventResponse> findResponses(Specification<UsageEvent> spec, Pageable pageable) {
+        List<UsageEventResponse> content = select(spec, pageable.getSort(), (int) pageable.getOffset(), pageable.getPageSize());
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<UsageEventResponse> findResponses(Specification<UsageEvent> spec, Sort sort, int limit) {
+        return select(spec, sort, 0, limit);
+    }
+
+    @Override
+    public Optional<UsageEventResponse> findResponseByEventId(String eventId) {
+        Specification<UsageEvent> byEventId = (root, query, cb) -> cb.equal(root.get("eventId"), eventId);
+        return select(byEventId, Sort.unsorted(), 0, 1).stream().findFirst();
+    }
+
+    @Override
+    public Stream<UsageEventResponse> streamResponses(Specification<UsageEvent> spec, Sort sort, int fetchSize) {
+        return createQuery(spec, sort)
+            .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+            .setHint(AvailableHints.HINT_READ_ONLY, true)
+            .getResultStream()
+            .map(UsageEventQueryRepositoryImpl::toResponse);
+    }
+
+    private List<UsageEventResponse> select(Specification<UsageEvent> spec, Sort sort, int offset, int limit) {
+        return createQuery(spec, sort)
+            .setFirstResult(offset)
+            .setMaxResults(limit)
+            .getResultList()
+            .stream()
+            .map(UsageEventQueryRepositoryImpl::toResponse)
+            .collect(Collectors.toList());
+    }
+
+    private TypedQuery<Tuple> createQuery(Specification<UsageEvent> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<UsageEvent> root = query.from(UsageEvent.class);
+        Join<UsageEvent, Customer> customer = root.join("customer", JoinType.LEFT);
+        Join<UsageEvent, User> user = root.join("user", JoinType.LEFT);
+
+        List<Selection<?>> selections = new ArrayList<>(EVENT_COLUMNS.length + 2);
+        for (String column : EVENT_COLUMNS) {
+            selections.add(root.get(column).alias(column));
+        }
+        selections.add(customer.get("customerId").alias("customerId"));
+        selections.add(user.get("userId").alias("userId"));
+        query.multiselect(selections);
+
+        Predicate where = spec.toPredicate(root, query, cb);
+        if (where != null) {
+            query.where(where);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<UsageEvent> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<UsageEvent> root = query.from(UsageEvent.class);
+        query.select(cb.count(root));
+        Predicate where = spec.toPredicate(root, query, cb);
+        if (where != null) {
+            query.where(where);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static UsageEventResponse toResponse(Tuple row) {
+        UsageEventResponse response = new UsageEventResponse(
+            row.get("eventId", String.class), row.get("customerId", String.class), row.get("userId", String.class),
+            row.get("vendor", String.class), row.get("model", String.class), row.get("apiType", String.class),
+            row.get("timestamp", LocalDateTime.class)
+        );
+        response.setId(row.get("id", Long.class));
+        response.setRegion(row.get("region", String.class));
+        response.setInputTokens(row.get("inputTokens", Long.class));
+        response.setOutputTokens(row.get("outputTokens", Long.class));
+        response.setTotalTokens(row.get("totalTokens", Long.class));
+        response.setCachedTokens(row.get("cachedTokens", Long.class));
+        response.setImageCount(row.get("imageCount", Integer.class));
+        response.setVideoCount(row.get("videoCount", Integer.class));
+        response.setAudioMinutes(row.get("audioMinutes", BigDecimal.class));
+        response.setRequestCount(row.get("requestCount", Integer.class));
+        response.setInputCost(row.get("inputCost", BigDecimal.class));
+        response.setOutputCost(row.get("outputCost", BigDecimal.class));
+        response.setTotalCost(row.get("totalCost", BigDecimal.class));
+        response.setRevenue(row.get("revenue", BigDecimal.class));
+        response.setProfit(row.get("profit", BigDecimal.class));
+        response.setCurrency(row.get("currency", String.class));
+        response.setPricingVersion(row.get("pricingVersion", Long.class));
+        response.setRequestId(row.get("requestId", String.class));
+        response.setSessionId(row.get("sessionId", String.class));
+        response.setEndpoint(row.get("endpoint", String.class));
+        response.setStatus(row.get("status", String.class));
+        response.setErrorMessage(row.get("errorMessage", String.class));
+        response.setMetadata(row.get("metadata", String.class));
+        response.setCreatedAt(row.get("createdAt", LocalDateTime.class));
+        return response;
+    }
+}
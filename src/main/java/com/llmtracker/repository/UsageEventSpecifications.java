@@ -0,0 +1,64 @@
+package com.llmtracker.repository;
+
+import com.llmtracker.dto.UsageEventFilter;
+import com.llmtracker.entity.UsageEvent;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class UsageEventSpecifications {
+
+    private UsageEventSpecifications() {}
+
+    /**
+     * Builds the WHERE clause for the event list; null or empty filter values are ignored. The
+     * time range is inclusive on both ends.
+     */
+    public static Specification<UsageEvent> matching(UsageEventFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (hasText(filter.getCustomerId())) {
+                predicates.add(cb.equal(root.get("customer").get("customerId"), filter.getCustomerId()));
+            }
+            if (hasText(filter.getUserId())) {
+                predicates.add(cb.equal(root.get("user").get("userId"), filter.getUserId()));
+            }
+            if (hasText(filter.getVendor())) {
+                predicates.add(cb.equal(root.get("vendor"), filter.getVendor()));
+            }
+            if (hasText(filter.getModel())) {
+                predicates.add(cb.equal(root.get("model"), filter.getModel()));
+            }
+            if (hasText(filter.getApiType())) {
+                predicates.add(cb.equal(root.get("apiType"), filter.getApiType()));
+            }
+            if (filter.getStartDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), filter.getStartDate()));
+            }
+            if (filter.getEndDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("timestamp"), filter.getEndDate()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Restricts the list to rows that sort after the given (timestamp, id) in timestamp desc, id
+     * desc order. The redundant {@code timestamp <= ?} bound is what lets the index scan start at
+     * the cursor instead of filtering everything before it.
+     */
+    public static Specification<UsageEvent> before(LocalDateTime timestamp, Long id) {
+        return (root, query, cb) -> cb.and(
+            cb.lessThanOrEqualTo(root.get("timestamp"), timestamp),
+            cb.or(
+                cb.lessThan(root.get("timestamp"), timestamp),
+                cb.lessThan(root.get("id"), id)));
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+}
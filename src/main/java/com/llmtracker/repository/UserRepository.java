@@ -1,19 +1,42 @@
 package com.llmtracker.repository;
 
 import com.llmtracker.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    @Override
+    @EntityGraph(attributePaths = "customer")
+    List<User> findAll();
+
+    @EntityGraph(attributePaths = "customer")
     Optional<User> findByUserId(String userId);
+
+    List<User> findByUserIdIn(Collection<String> userIds);
+
+    /**
+     * Returns 0 when {@code uk_users_user_id} already holds the user id; an insert racing one of
+     * the same id waits for it to commit and then does nothing.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO users (id, user_id, first_name, last_name, email, department, role, password, active, " +
+                   "customer_id, created_at, updated_at) " +
+                   "VALUES (nextval('users_seq'), :#{#u.userId}, :#{#u.firstName}, :#{#u.lastName}, :#{#u.email}, " +
+                   ":#{#u.department}, :#{#u.role}, :#{#u.password}, :#{#u.active}, :customerPk, :#{#u.createdAt}, :#{#u.updatedAt}) " +
+                   "ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("u") User user, @Param("customerPk") Long customerPk);
     
+    @EntityGraph(attributePaths = "customer")
     List<User> findByCustomer_CustomerId(String customerId);
     
     List<User> findByActiveTrue();
@@ -23,19 +46,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.customer.customerId = :customerId AND u.active = true")
     List<User> findActiveUsersByCustomerId(@Param("customerId") String customerId);
     
+    @EntityGraph(attributePaths = "customer")
     @Query("SELECT u FROM User u WHERE (u.firstName LIKE %:searchTerm% OR u.lastName LIKE %:searchTerm% OR u.email LIKE %:searchTerm%) AND u.customer.customerId = :customerId")
     List<User> searchUsersByCustomer(@Param("searchTerm") String searchTerm, @Param("customerId") String customerId);
     
     Optional<User> findByEmail(String email);
     
+    @EntityGraph(attributePaths = "customer")
     Optional<User> findByEmailAndActiveTrue(String email);
     
     @Query("SELECT u FROM User u LEFT JOIN FETCH u.customer WHERE u.email = :email AND u.active = true")
     Optional<User> findByEmailAndActiveTrueWithCustomer(@Param("email") String email);
     
+    @EntityGraph(attributePaths = "customer")
     @Query("SELECT u FROM User u WHERE u.firstName LIKE %:searchTerm% OR u.lastName LIKE %:searchTerm% OR u.email LIKE %:searchTerm%")
     List<User> searchUsers(@Param("searchTerm") String searchTerm);
     
+    @EntityGraph(attributePaths = "customer")
     @Query("SELECT u FROM User u WHERE (u.firstName LIKE %:searchTerm% OR u.lastName LIKE %:searchTerm% OR u.email LIKE %:searchTerm%) AND u.customer.customerId = :customerId")
     List<User> searchUsersByCustomerId(@Param("searchTerm") String searchTerm, @Param("customerId") String customerId);
 }
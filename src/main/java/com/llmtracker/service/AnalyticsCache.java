@@ -0,0 +1,217 @@
+package com.llmtracker.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.llmtracker.dto.AnalyticsResponse;
+import com.llmtracker.dto.UsageEventResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of analytics responses for dashboards that poll with the same parameters. Ranges that end
+ * before today are kept until evicted for size; ranges reaching today expire after
+ * {@code analytics.cache.ttl-seconds}. When ingest commits events, entries of that customer (and
+ * the all-customers entries) whose range or comparison month covers the events' days are dropped.
+ * Responses are cached as futures that the requesting thread completes, so a slow computation holds
+ * no cache lock and never delays an invalidation; requests for the same key wait on its future.
+ */
+@Component
+public class AnalyticsCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${analytics.cache.max-size:1000}")
+    private long maxSize;
+
+    @Value("${analytics.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private AsyncCache<Key, AnalyticsResponse> responses;
+
+    /**
+     * Bumped before every invalidation. A response whose computation overlapped an invalidation
+     * may have read the data from before the commit, so it is served once but not kept. Only the
+     * call that computed a response checks it; hits are served as cached.
+     */
+    private final AtomicLong watermark = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        responses = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<Key, AnalyticsResponse>() {
+                @Override
+                public long expireAfterCreate(Key key, AnalyticsResponse response, long currentTime) {
+                    return key.endDate.isBefore(LocalDate.now()) ? Long.MAX_VALUE : TimeUnit.SECONDS.toNanos(ttlSeconds);
+                }
+
+                @Override
+                public long expireAfterUpdate(Key key, AnalyticsResponse response, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, response, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(Key key, AnalyticsResponse response, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "analytics.responses");
+    }
+
+    public AnalyticsResponse get(String period, LocalDate startDate, LocalDate endDate, String customerId,
+                                 String userId, String vendor, int topN, Supplier<AnalyticsResponse> loader) {
+        Key key = new Key(period, startDate, endDate, customerId, userId, vendor, topN);
+        CompletableFuture<AnalyticsResponse> cached = responses.getIfPresent(key);
+        if (cached != null) {
+            return join(cached);
+        }
+        long seen = watermark.get();
+        CompletableFuture<AnalyticsResponse> loading = new CompletableFuture<>();
+        cached = responses.asMap().putIfAbsent(key, loading);
+        if (cached != null) {
+            return join(cached);
+        }
+        AnalyticsResponse response;
+        try {
+            response = loader.get();
+        } catch (RuntimeException | Error e) {
+            // Caffeine drops a future that completes exceptionally.
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        loading.complete(response);
+        if (seen != watermark.get()) {
+            responses.asMap().remove(key, loading);
+        }
+        return response;
+    }
+
+    private static AnalyticsResponse join(CompletableFuture<AnalyticsResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public void invalidateAfterCommit(Collection<UsageEventResponse> events) {
+        Map<String, DateRange> touched = new HashMap<>();
+        for (UsageEventResponse event : events) {
+            LocalDate day = event.getTimestamp().toLocalDate();
+            touched.merge(event.getCustomerId(), new DateRange(day, day), DateRange::span);
+        }
+        afterCommit(touched);
+    }
+
+    /** Drops the entries of {@code customerId} that read {@code day}, once the transaction commits. */
+    public void invalidateAfterCommit(String customerId, LocalDate day) {
+        Map<String, DateRange> touched = new HashMap<>();
+        touched.put(customerId, new DateRange(day, day));
+        afterCommit(touched);
+    }
+
+    private void afterCommit(Map<String, DateRange> touched) {
+        if (touched.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            touched.forEach(this::invalidate);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                touched.forEach(AnalyticsCache.this::invalidate);
+            }
+        });
+    }
+
+    private void invalidate(String customerId, DateRange days) {
+        watermark.incrementAndGet();
+        responses.asMap().keySet().removeIf(key ->
+            (key.customerId == null || key.customerId.equals(customerId)) && key.reads(days));
+    }
+
+    private static final class DateRange {
+        private final LocalDate from;
+        private final LocalDate to;
+
+        private DateRange(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private DateRange span(DateRange other) {
+            return new DateRange(from.isBefore(other.from) ? from : other.from, to.isAfter(other.to) ? to : other.to);
+        }
+
+        private boolean overlaps(LocalDate start, LocalDate end) {
+            return !from.isAfter(end) && !to.isBefore(start);
+        }
+    }
+
+    private static final class Key {
+        private final String period;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final String customerId;
+        private final String userId;
+        private final String vendor;
+        private final int topN;
+
+        private Key(String period, LocalDate startDate, LocalDate endDate, String customerId, String userId, String vendor,
+                    int topN) {
+            this.period = period;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.customerId = customerId == null || customerId.trim().isEmpty() ? null : customerId;
+            this.userId = userId;
+            this.vendor = vendor;
+            this.topN = topN;
+        }
+
+        /** The response covers the requested days and the same days one month earlier. */
+        private boolean reads(DateRange days) {
+            return days.overlaps(startDate, endDate) || days.overlaps(startDate.minusMonths(1), endDate.minusMonths(1));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return Objects.equals(period, other.period) && startDate.equals(other.startDate) && endDate.equals(other.endDate)
+                && Objects.equals(customerId, other.customerId) && Objects.equals(userId, other.userId)
+                && Objects.equals(vendor, other.vendor) && topN == other.topN;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(period, startDate, endDate, customerId, userId, vendor, topN);
+        }
+    }
+}
@@ -0,0 +1,625 @@
+package com.llmtracker.service;
+
+import com.llmtracker.dto.AnalyticsResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Computes the aggregate part of {@link AnalyticsResponse}. The request is split into independent
+ * sections (totals and breakdowns, time series, customer/user rankings, previous-period totals,
+ * distinct counts, per-event percentiles), each a single scan using GROUPING SETS where it covers
+ * several dimensions. Ranges made of whole days or hours are answered from the rollup tables kept
+ * by {@link UsageRollupService}, distinct counts from the sketches of {@link UsageSketchService}
+ * and percentiles from those of {@link UsageQuantileService}, so their cost follows the number of
+ * buckets rather than the number of events. The sections run concurrently on a small dedicated
+ * pool: its size caps how many analytics queries hold a connection at once, its queue bounds how
+ * many wait, and every query carries a statement timeout on top of an overall deadline for the
+ * request.
+ */
+@Service
+public class AnalyticsQueryEngine {
+
+    public static class Totals {
+        private final long events;
+        private final long tokens;
+        private final BigDecimal cost;
+        private final BigDecimal revenue;
+        private final BigDecimal profit;
+
+        public Totals(long events, long tokens, BigDecimal cost, BigDecimal revenue, BigDecimal profit) {
+            this.events = events;
+            this.tokens = tokens;
+            this.cost = cost;
+            this.revenue = revenue;
+            this.profit = profit;
+        }
+
+        public long getEvents() { return events; }
+        public long getTokens() { return tokens; }
+        public BigDecimal getCost() { return cost; }
+        public BigDecimal getRevenue() { return revenue; }
+        public BigDecimal getProfit() { return profit; }
+    }
+
+    public static class Result {
+        private final Totals previous;
+        private final List<AnalyticsResponse.TimeSeriesData> dailySeries;
+        private final UsageQuantileService.Distributions distributions;
+
+        public Result(Totals previous, List<AnalyticsResponse.TimeSeriesData> dailySeries,
+                      UsageQuantileService.Distributions distributions) {
+            this.previous = previous;
+            this.dailySeries = dailySeries;
+            this.distributions = distributions;
+        }
+
+        public Totals getPrevious() { return previous; }
+        public List<AnalyticsResponse.TimeSeriesData> getDailySeries() { return dailySeries; }
+        public UsageQuantileService.Distributions getDistributions() { return distributions; }
+    }
+
+    /**
+     * Where a section reads from: raw events, or one of the rollup tables when the range covers
+     * whole buckets. Both expose the same dimension columns under the alias {@code ue}.
+     */
+    private static final class Source {
+        private final String table;
+        private final String time;
+        private final String measures;
+        private final String region;
+        private final String endpoint;
+
+        private Source(String table, String time, String measures, String region, String endpoint) {
+            this.table = table;
+            this.time = time;
+            this.measures = measures;
+            this.region = region;
+            this.endpoint = endpoint;
+        }
+
+        private static Source rollup(String table) {
+            return new Source(table, "ue.bucket",
+                "COALESCE(SUM(ue.events), 0) AS events, COALESCE(SUM(ue.tokens), 0) AS tokens, COALESCE(SUM(ue.cost), 0) AS cost, " +
+                "COALESCE(SUM(ue.revenue), 0) AS revenue, COALESCE(SUM(ue.profit), 0) AS profit ",
+                "NULLIF(ue.region, '')", "NULLIF(ue.endpoint, '')");
+        }
+
+        private String from(boolean joined, Filter filter) {
+            String from = "FROM " + table + " ue ";
+            if (joined) {
+                from += "JOIN customers c ON c.id = ue.customer_id JOIN users u ON u.id = ue.user_id ";
+            }
+            return from + "WHERE " + time + " BETWEEN :start AND :end " + filter.predicates();
+        }
+
+        private String bucket(TimeBucket bucket) {
+            return "date_trunc('" + bucket.getSqlUnit() + "', " + time + ")";
+        }
+    }
+
+    /**
+     * Optional customer, user and vendor restrictions. Customer and user ids are resolved to row ids
+     * up front so the predicates land on the event columns and can use the composite
+     * (customer, user|vendor, time) indexes.
+     */
+    private static final class Filter {
+        private final String customerId;
+        private final String userId;
+        private final String vendor;
+
+        private Filter(String customerId, String userId, String vendor) {
+            this.customerId = blankToNull(customerId);
+            this.userId = blankToNull(userId);
+            this.vendor = blankToNull(vendor);
+        }
+
+        private boolean byCustomer() {
+            return customerId != null;
+        }
+
+        private boolean isTenantWide() {
+            return userId == null && vendor == null;
+        }
+
+        private String predicates() {
+            String predicates = "";
+            if (customerId != null) {
+                predicates += "AND ue.customer_id = (SELECT id FROM customers WHERE customer_id = :customerId) ";
+            }
+            if (userId != null) {
+                predicates += "AND ue.user_id = (SELECT id FROM users WHERE user_id = :userId) ";
+            }
+            if (vendor != null) {
+                predicates += "AND ue.vendor = :vendor ";
+            }
+            return predicates;
+        }
+
+        private MapSqlParameterSource params(LocalDateTime start, LocalDateTime end) {
+            return new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end))
+                .addValue("customerId", customerId)
+                .addValue("userId", userId)
+                .addValue("vendor", vendor);
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.trim().isEmpty() ? null : value;
+        }
+    }
+
+    private static final Source EVENTS = new Source("usage_events", "ue.timestamp",
+        "COUNT(*) AS events, COALESCE(SUM(ue.total_tokens), 0) AS tokens, COALESCE(SUM(ue.total_cost), 0) AS cost, " +
+        "COALESCE(SUM(ue.revenue), 0) AS revenue, COALESCE(SUM(ue.profit), 0) AS profit ",
+        "ue.region", "ue.endpoint");
+
+    private static final Source HOURLY = Source.rollup(UsageRollupService.HOURLY_TABLE);
+
+    private static final Source DAILY = Source.rollup(UsageRollupService.DAILY_TABLE);
+
+    private static final int MAX_SECTIONS = 7;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UsageLeaderboard leaderboard;
+
+    @Autowired
+    private UsageSketchService sketches;
+
+    @Autowired
+    private UsageQuantileService quantiles;
+
+    @Value("${analytics.executor.threads:4}")
+    private int threads;
+
+    @Value("${analytics.executor.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${analytics.query-timeout-seconds:30}")
+    private int queryTimeoutSeconds;
+
+    @Value("${analytics.rollups.enabled:true}")
+    private boolean rollupsEnabled;
+
+    private NamedParameterJdbcTemplate queries;
+    private ExecutorService executor;
+    private Semaphore slots;
+
+    @PostConstruct
+    public void start() {
+        JdbcTemplate timed = new JdbcTemplate(jdbcTemplate.getDataSource());
+        timed.setQueryTimeout(queryTimeoutSeconds);
+        queries = new NamedParameterJdbcTemplate(timed);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, r -> new Thread(r, "analytics-query-" + threadNumber.incrementAndGet()));
+        slots = new Semaphore(Math.max(MAX_SECTIONS, threads + queueCapacity));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Fills totals, breakdown maps, the time series in {@code bucket} resolution and the top
+     * customer/user lists of {@code response} for the range, and returns the totals of the
+     * comparison range along with the daily series and per-event percentiles, running the
+     * sections concurrently. Every section applies the optional customer, user and vendor filters.
+     * With a customer filter the customer ranking is left empty and users are ranked within that
+     * customer. Rankings hold at most {@code topN} entries each and come from
+     * {@link UsageLeaderboard} when it covers the range.
+     * Distinct users and sessions are merged from the daily sketches, or counted exactly when a
+     * user filter narrows the range to one user's events; percentiles likewise.
+     *
+     * @throws RejectedExecutionException when the pool and its queue have no room for every section
+     * @throws QueryTimeoutException when the sections do not finish within the query timeout
+     */
+    public Result compute(AnalyticsResponse response, TimeBucket bucket, LocalDateTime start, LocalDateTime end,
+                          LocalDateTime previousStart, LocalDateTime previousEnd,
+                          String customerId, String userId, String vendor, int topN) {
+        boolean separateDaily = bucket == TimeBucket.WEEKLY || bucket == TimeBucket.MONTHLY;
+        int sectionCount = separateDaily ? MAX_SECTIONS : MAX_SECTIONS - 1;
+        if (!slots.tryAcquire(sectionCount)) {
+            throw new RejectedExecutionException("Analytics query queue is full");
+        }
+        Filter filter = new Filter(customerId, userId, vendor);
+        Source source = sourceFor(start, end, true);
+        Source seriesSource = sourceFor(start, end, bucket != TimeBucket.HOURLY);
+        Source previousSource = sourceFor(previousStart, previousEnd, true);
+        List<CompletableFuture<?>> sections = new ArrayList<>();
+        try {
+            sections.add(submit(() -> computeBreakdowns(source, response, start, end, filter)));
+            CompletableFuture<List<AnalyticsResponse.TimeSeriesData>> series =
+                submit(() -> computeTimeSeries(seriesSource, bucket, start, end, filter));
+            sections.add(series);
+            sections.add(submit(() -> {
+                if (filter.isTenantWide() && leaderboard.covers(start, end)) {
+                    leaderboard.fill(response, start, end, filter.customerId, topN);
+                } else {
+                    computeRankings(source, response, start, end, filter, topN);
+                }
+            }));
+            CompletableFuture<Totals> previous = submit(() -> computeTotals(previousSource, previousStart, previousEnd, filter));
+            sections.add(previous);
+            CompletableFuture<UsageSketchService.Counts> distinct = submit(() -> filter.userId != null
+                ? computeExactDistinct(bucket, start, end, filter)
+                : sketches.read(start.toLocalDate(), end.toLocalDate(), filter.customerId, filter.vendor, bucket));
+            sections.add(distinct);
+            CompletableFuture<UsageQuantileService.Distributions> distributions = submit(() -> filter.userId != null
+                ? computeExactPercentiles(start, end, filter)
+                : quantiles.read(start.toLocalDate(), end.toLocalDate(), filter.customerId, filter.vendor));
+            sections.add(distributions);
+            CompletableFuture<List<AnalyticsResponse.TimeSeriesData>> daily = series;
+            if (separateDaily) {
+                daily = submit(() -> computeTimeSeries(source, TimeBucket.DAILY, start, end, filter));
+                sections.add(daily);
+            }
+
+            CompletableFuture.allOf(sections.toArray(new CompletableFuture<?>[0])).get(queryTimeoutSeconds, TimeUnit.SECONDS);
+            response.setTimeSeriesData(series.join());
+            applyDistinct(response, distinct.join(), filter);
+            List<AnalyticsResponse.TimeSeriesData> dailySeries = bucket == TimeBucket.HOURLY ? toDaily(series.join()) : daily.join();
+            return new Result(previous.join(), dailySeries, distributions.join());
+        } catch (TimeoutException e) {
+            sections.forEach(section -> section.cancel(true));
+            throw new QueryTimeoutException("Analytics queries did not finish within " + queryTimeoutSeconds + "s", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sections.forEach(section -> section.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for analytics queries", e);
+        } catch (ExecutionException e) {
+            sections.forEach(section -> section.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Analytics query failed", e.getCause());
+        }
+    }
+
+    private CompletableFuture<Void> submit(Runnable section) {
+        return submit(() -> {
+            section.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs one section on the pool and gives its slot back when it finishes. A section that was
+     * still waiting when its request gave up is skipped rather than run for nobody.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> section) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                if (!future.isDone()) {
+                    future.complete(section.get());
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                slots.release();
+            }
+        });
+        return future;
+    }
+
+    private void computeBreakdowns(Source source, AnalyticsResponse response, LocalDateTime start, LocalDateTime end, Filter filter) {
+        String sql = "SELECT CASE " +
+            "WHEN GROUPING(ue.vendor) = 0 THEN 'vendor' " +
+            "WHEN GROUPING(ue.model) = 0 THEN 'model' " +
+            "WHEN GROUPING(ue.api_type) = 0 THEN 'api_type' " +
+            "WHEN GROUPING(" + source.region + ") = 0 THEN 'region' " +
+            "WHEN GROUPING(" + source.endpoint + ") = 0 THEN 'endpoint' " +
+            "WHEN GROUPING(u.role) = 0 THEN 'role' " +
+            "ELSE 'total' END AS dimension, " +
+            "ue.vendor, ue.model, ue.api_type, " + source.region + " AS region, " + source.endpoint + " AS endpoint, u.role, " +
+            source.measures + source.from(true, filter) +
+            "GROUP BY GROUPING SETS ((), (ue.vendor), (ue.model), (ue.api_type), (" + source.region + "), " +
+            "(" + source.endpoint + "), (u.role))";
+
+        response.setTotalEvents(0L);
+        response.setTotalTokens(0L);
+        response.setTotalCost(BigDecimal.ZERO);
+        response.setTotalRevenue(BigDecimal.ZERO);
+        response.setTotalProfit(BigDecimal.ZERO);
+        response.setUsageByVendor(new HashMap<>());
+        response.setUsageByModel(new HashMap<>());
+        response.setUsageByApiType(new HashMap<>());
+        response.setCostByVendor(new HashMap<>());
+        response.setCostByModel(new HashMap<>());
+        response.setCostByApiType(new HashMap<>());
+        response.setUsageByRegion(new HashMap<>());
+        response.setUsageByEndpoint(new HashMap<>());
+        response.setUsageByUserRole(new HashMap<>());
+
+        queries.query(sql, filter.params(start, end), rs -> {
+            String dimension = rs.getString("dimension");
+            long events = rs.getLong("events");
+            BigDecimal cost = rs.getBigDecimal("cost");
+            switch (dimension) {
+                case "total":
+                    response.setTotalEvents(events);
+                    response.setTotalTokens(rs.getLong("tokens"));
+                    response.setTotalCost(cost);
+                    response.setTotalRevenue(rs.getBigDecimal("revenue"));
+                    response.setTotalProfit(rs.getBigDecimal("profit"));
+                    break;
+                case "vendor":
+                    putBreakdown(rs, "vendor", events, cost, response.getUsageByVendor(), response.getCostByVendor());
+                    break;
+                case "model":
+                    putBreakdown(rs, "model", events, cost, response.getUsageByModel(), response.getCostByModel());
+                    break;
+                case "api_type":
+                    putBreakdown(rs, "api_type", events, cost, response.getUsageByApiType(), response.getCostByApiType());
+                    break;
+                case "region":
+                    putBreakdown(rs, "region", events, cost, response.getUsageByRegion(), null);
+                    break;
+                case "endpoint":
+                    putBreakdown(rs, "endpoint", events, cost, response.getUsageByEndpoint(), null);
+                    break;
+                case "role":
+                    putBreakdown(rs, "role", events, cost, response.getUsageByUserRole(), null);
+                    break;
+                default:
+                    break;
+            }
+        });
+    }
+
+    private List<AnalyticsResponse.TimeSeriesData> computeTimeSeries(Source source, TimeBucket bucket, LocalDateTime start,
+                                                                     LocalDateTime end, Filter filter) {
+        String sql = "SELECT " + source.bucket(bucket) + " AS bucket, " + source.measures + source.from(false, filter) +
+            "GROUP BY " + source.bucket(bucket);
+
+        List<AnalyticsResponse.TimeSeriesData> timeSeries = queries.query(sql, filter.params(start, end), (rs, rowNum) -> {
+            LocalDateTime bucketStart = rs.getTimestamp("bucket").toLocalDateTime();
+            AnalyticsResponse.TimeSeriesData point = new AnalyticsResponse.TimeSeriesData(bucketStart.toLocalDate());
+            point.setTimestamp(bucketStart);
+            point.setEvents(rs.getLong("events"));
+            point.setTokens(rs.getLong("tokens"));
+            point.setCost(rs.getBigDecimal("cost"));
+            point.setRevenue(rs.getBigDecimal("revenue"));
+            point.setProfit(rs.getBigDecimal("profit"));
+            return point;
+        });
+        timeSeries.sort(Comparator.comparing(AnalyticsResponse.TimeSeriesData::getTimestamp));
+        return timeSeries;
+    }
+
+    private static List<AnalyticsResponse.TimeSeriesData> toDaily(List<AnalyticsResponse.TimeSeriesData> hourly) {
+        Map<LocalDate, AnalyticsResponse.TimeSeriesData> days = new TreeMap<>();
+        for (AnalyticsResponse.TimeSeriesData hour : hourly) {
+            AnalyticsResponse.TimeSeriesData day = days.get(hour.getDate());
+            if (day == null) {
+                day = new AnalyticsResponse.TimeSeriesData(hour.getDate());
+                day.setTimestamp(hour.getDate().atStartOfDay());
+                day.setEvents(0L);
+                day.setTokens(0L);
+                day.setCost(BigDecimal.ZERO);
+                day.setRevenue(BigDecimal.ZERO);
+                day.setProfit(BigDecimal.ZERO);
+                days.put(hour.getDate(), day);
+            }
+            day.setEvents(day.getEvents() + hour.getEvents());
+            day.setTokens(day.getTokens() + hour.getTokens());
+            day.setCost(day.getCost().add(hour.getCost()));
+            day.setRevenue(day.getRevenue().add(hour.getRevenue()));
+            day.setProfit(day.getProfit().add(hour.getProfit()));
+        }
+        return new ArrayList<>(days.values());
+    }
+
+    /**
+     * Ranks customers and users by cost on their row ids and keeps the first {@code topN} of each
+     * in the database, so only those rows are joined to their names and returned.
+     */
+    private void computeRankings(Source source, AnalyticsResponse response, LocalDateTime start, LocalDateTime end,
+                                 Filter filter, int topN) {
+        String groupingSets = filter.byCustomer() ? "((ue.user_id, ue.customer_id))" : "((ue.customer_id), (ue.user_id, ue.customer_id))";
+        String sql = "SELECT r.*, c.customer_id, c.organization_name, u.user_id, u.first_name, u.last_name, u.email FROM (" +
+            "SELECT g.*, row_number() OVER (PARTITION BY g.by_user ORDER BY g.cost DESC, g.customer_row, g.user_row) AS rank FROM (" +
+            "SELECT 1 - GROUPING(ue.user_id) AS by_user, ue.customer_id AS customer_row, ue.user_id AS user_row, " +
+            source.measures + source.from(false, filter) + "GROUP BY GROUPING SETS " + groupingSets + ") g) r " +
+            "JOIN customers c ON c.id = r.customer_row LEFT JOIN users u ON u.id = r.user_row " +
+            "WHERE r.rank <= :topN ORDER BY r.by_user, r.rank";
+        List<AnalyticsResponse.CustomerMetrics> topCustomers = new ArrayList<>();
+        List<AnalyticsResponse.UserMetrics> topUsers = new ArrayList<>();
+
+        queries.query(sql, filter.params(start, end).addValue("topN", topN), rs -> {
+            long events = rs.getLong("events");
+            BigDecimal cost = rs.getBigDecimal("cost");
+            if (rs.getInt("by_user") == 1) {
+                topUsers.add(toUserMetrics(rs, events, cost));
+            } else {
+                topCustomers.add(toCustomerMetrics(rs, events, cost));
+            }
+        });
+
+        response.setTopCustomers(topCustomers);
+        response.setTopUsers(topUsers);
+    }
+
+    private Totals computeTotals(Source source, LocalDateTime start, LocalDateTime end, Filter filter) {
+        String sql = "SELECT " + source.measures + source.from(false, filter);
+        return queries.queryForObject(sql, filter.params(start, end), (rs, rowNum) -> new Totals(
+            rs.getLong("events"), rs.getLong("tokens"), rs.getBigDecimal("cost"), rs.getBigDecimal("revenue"), rs.getBigDecimal("profit")));
+    }
+
+    private UsageSketchService.Counts computeExactDistinct(TimeBucket bucket, LocalDateTime start, LocalDateTime end, Filter filter) {
+        String bucketStart = EVENTS.bucket(bucket);
+        String sql = "SELECT CASE WHEN GROUPING(ue.vendor) = 0 THEN 'vendor' WHEN GROUPING(ue.model) = 0 THEN 'model' " +
+            "WHEN GROUPING(" + bucketStart + ") = 0 THEN 'bucket' ELSE 'total' END AS dimension, " +
+            "ue.vendor, ue.model, " + bucketStart + " AS bucket, " +
+            "COUNT(DISTINCT ue.user_id) AS users, COUNT(DISTINCT ue.session_id) AS sessions " + EVENTS.from(false, filter) +
+            "GROUP BY GROUPING SETS ((), (ue.vendor), (ue.model), (" + bucketStart + "))";
+
+        AnalyticsResponse.DistinctCounts totals = new AnalyticsResponse.DistinctCounts();
+        totals.setActiveUsers(0L);
+        totals.setSessions(0L);
+        totals.setActiveUsersByVendor(new HashMap<>());
+        totals.setSessionsByVendor(new HashMap<>());
+        totals.setActiveUsersByModel(new HashMap<>());
+        totals.setSessionsByModel(new HashMap<>());
+        totals.setRelativeStandardError(0.0);
+        Map<LocalDateTime, long[]> byBucket = new TreeMap<>();
+        queries.query(sql, filter.params(start, end), rs -> {
+            long users = rs.getLong("users");
+            long sessions = rs.getLong("sessions");
+            switch (rs.getString("dimension")) {
+                case "total":
+                    totals.setActiveUsers(users);
+                    totals.setSessions(sessions);
+                    break;
+                case "vendor":
+                    totals.getActiveUsersByVendor().put(rs.getString("vendor"), users);
+                    totals.getSessionsByVendor().put(rs.getString("vendor"), sessions);
+                    break;
+                case "model":
+                    totals.getActiveUsersByModel().put(rs.getString("model"), users);
+                    totals.getSessionsByModel().put(rs.getString("model"), sessions);
+                    break;
+                default:
+                    byBucket.put(rs.getTimestamp("bucket").toLocalDateTime(), new long[] { users, sessions });
+                    break;
+            }
+        });
+        return new UsageSketchService.Counts(totals, byBucket);
+    }
+
+    private UsageQuantileService.Distributions computeExactPercentiles(LocalDateTime start, LocalDateTime end, Filter filter) {
+        String sql = "SELECT " +
+            "percentile_disc(ARRAY[0.5, 0.9, 0.99]) WITHIN GROUP (ORDER BY ue.total_tokens) AS tokens, " +
+            "percentile_disc(ARRAY[0.5, 0.9, 0.99]) WITHIN GROUP (ORDER BY ue.total_cost) AS cost, " +
+            "percentile_disc(ARRAY[0.5, 0.9, 0.99]) WITHIN GROUP (ORDER BY ue.audio_minutes) AS audio_minutes " +
+            EVENTS.from(false, filter);
+        return queries.queryForObject(sql, filter.params(start, end), (rs, rowNum) -> new UsageQuantileService.Distributions(
+            toPercentiles(rs.getArray("tokens")), toPercentiles(rs.getArray("cost")), toPercentiles(rs.getArray("audio_minutes")), 0.0));
+    }
+
+    private static AnalyticsResponse.Percentiles toPercentiles(Array array) throws SQLException {
+        if (array == null) {
+            return new AnalyticsResponse.Percentiles();
+        }
+        Object[] values = (Object[]) array.getArray();
+        return new AnalyticsResponse.Percentiles(((Number) values[0]).doubleValue(), ((Number) values[1]).doubleValue(),
+                                                 ((Number) values[2]).doubleValue());
+    }
+
+    /**
+     * Sets the distinct counts on the response and its series points. Model sketches are not split
+     * by vendor, so with a vendor filter only the models that vendor served are kept.
+     */
+    private static void applyDistinct(AnalyticsResponse response, UsageSketchService.Counts counts, Filter filter) {
+        AnalyticsResponse.DistinctCounts totals = counts.getTotals();
+        if (filter.vendor != null) {
+            totals.getActiveUsersByModel().keySet().retainAll(response.getUsageByModel().keySet());
+            totals.getSessionsByModel().keySet().retainAll(response.getUsageByModel().keySet());
+        }
+        response.setDistinctCounts(totals);
+        for (AnalyticsResponse.TimeSeriesData point : response.getTimeSeriesData()) {
+            long[] bucketCounts = counts.getByBucket().get(point.getTimestamp());
+            if (bucketCounts != null) {
+                point.setActiveUsers(bucketCounts[0]);
+                point.setSessions(bucketCounts[1]);
+            }
+        }
+    }
+
+    /**
+     * Picks the coarsest rollup whose buckets exactly tile {@code [start, end]}, where {@code end}
+     * is the last second of a bucket as the API produces it; anything else reads raw events. Hourly
+     * series pass {@code allowDaily = false}.
+     */
+    private Source sourceFor(LocalDateTime start, LocalDateTime end, boolean allowDaily) {
+        if (!rollupsEnabled) {
+            return EVENTS;
+        }
+        LocalDateTime endExclusive = end.plusSeconds(1);
+        if (allowDaily && start.equals(start.truncatedTo(ChronoUnit.DAYS)) && endExclusive.equals(endExclusive.truncatedTo(ChronoUnit.DAYS))) {
+            return DAILY;
+        }
+        if (start.equals(start.truncatedTo(ChronoUnit.HOURS)) && endExclusive.equals(endExclusive.truncatedTo(ChronoUnit.HOURS))) {
+            return HOURLY;
+        }
+        return EVENTS;
+    }
+
+    private static void putBreakdown(ResultSet rs, String column, long events, BigDecimal cost,
+                                     Map<String, Long> counts, Map<String, BigDecimal> costs) throws SQLException {
+        String key = rs.getString(column);
+        if (key == null) {
+            return;
+        }
+        counts.put(key, events);
+        if (costs != null) {
+            costs.put(key, cost);
+        }
+    }
+
+    private static AnalyticsResponse.CustomerMetrics toCustomerMetrics(ResultSet rs, long events, BigDecimal cost) throws SQLException {
+        AnalyticsResponse.CustomerMetrics metrics = new AnalyticsResponse.CustomerMetrics(
+            rs.getString("customer_id"), rs.getString("organization_name"));
+        metrics.setEvents(events);
+        metrics.setTokens(rs.getLong("tokens"));
+        metrics.setCost(cost);
+        metrics.setRevenue(rs.getBigDecimal("revenue"));
+        metrics.setProfit(rs.getBigDecimal("profit"));
+        if (metrics.getRevenue().compareTo(BigDecimal.ZERO) > 0) {
+            metrics.setProfitMargin(metrics.getProfit()
+                .divide(metrics.getRevenue(), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)));
+        }
+        return metrics;
+    }
+
+    private static AnalyticsResponse.UserMetrics toUserMetrics(ResultSet rs, long events, BigDecimal cost) throws SQLException {
+        AnalyticsResponse.UserMetrics metrics = new AnalyticsResponse.UserMetrics(
+            rs.getString("user_id"), rs.getString("first_name") + " " + rs.getString("last_name"), rs.getString("email"),
+            rs.getString("customer_id"));
+        metrics.setEvents(events);
+        metrics.setTokens(rs.getLong("tokens"));
+        metrics.setCost(cost);
+        metrics.setRevenue(rs.getBigDecimal("revenue"));
+        metrics.setProfit(rs.getBigDecimal("profit"));
+        return metrics;
+    }
+}
@@ -0,0 +1,434 @@
+package com.llmtracker.service;
+
+import com.llmtracker.dto.BatchIngestResponse;
+import com.llmtracker.dto.UsageEventRequest;
+import com.llmtracker.dto.UsageEventResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind ingest pipeline used when {@code ingest.mode=async}. Requests are acknowledged as
+ * soon as they are queued; a fixed pool of writer threads drains the bounded queue in batches
+ * through {@link UsageEventService#processUsageEventBatch(List, List)}.
+ *
+ * With the write-ahead log enabled every event is logged before it is acknowledged and released
+ * from the log once its batch commits. Writers keep retrying while the database is unavailable,
+ * for as long as it takes, instead of dropping batches; the full queue meanwhile turns new requests
+ * away. Whatever is still unapplied at shutdown is replayed on the next start, skipping event ids
+ * that already made it into {@code usage_events}.
+ *
+ * A batch that fails for any other reason, such as a row violating a constraint, is split in halves
+ * until the events that fail on their own are found; those go to {@link IngestDeadLetterStore} and
+ * are released from the log, so one bad event cannot hold up a writer or the replay.
+ */
+@Service
+public class AsyncIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncIngestService.class);
+
+    public enum BackpressurePolicy { BLOCK, REJECT, SPILL }
+
+    @Autowired
+    private UsageEventService usageEventService;
+
+    @Autowired
+    private IngestSpillStore spillStore;
+
+    @Autowired
+    private IngestWriteAheadLog writeAheadLog;
+
+    @Autowired
+    private IngestDeadLetterStore deadLetterStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ingest.mode:sync}")
+    private String mode;
+
+    @Value("${ingest.async.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${ingest.async.workers:2}")
+    private int workers;
+
+    @Value("${ingest.async.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ingest.async.backpressure:reject}")
+    private String backpressure;
+
+    @Value("${ingest.async.block-timeout-ms:2000}")
+    private long blockTimeoutMs;
+
+    @Value("${ingest.async.max-attempts:3}")
+    private int maxAttempts;
+
+    private BlockingQueue<QueuedUsageEvent> queue;
+    private Semaphore slots;
+    private BackpressurePolicy policy;
+    private ExecutorService writers;
+    private Thread replayThread;
+    private volatile boolean running;
+
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+    private Counter spilledCounter;
+    private Counter persistedCounter;
+    private Counter failedCounter;
+    private Counter deadLetteredCounter;
+    private Timer queueLatency;
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        policy = BackpressurePolicy.valueOf(backpressure.trim().toUpperCase(Locale.ROOT));
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        slots = new Semaphore(queueCapacity);
+        registerMetrics();
+
+        List<QueuedUsageEvent> recovered = new ArrayList<>();
+        if (writeAheadLog.isEnabled()) {
+            spillStore.discardAll();
+            recovered = writeAheadLog.recover();
+        }
+
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(workers, r -> new Thread(r, "ingest-writer-" + threadNumber.incrementAndGet()));
+        for (int i = 0; i < workers; i++) {
+            writers.submit(this::drainLoop);
+        }
+        if (!recovered.isEmpty()) {
+            List<QueuedUsageEvent> pending = recovered;
+            replayThread = new Thread(() -> replay(pending), "ingest-wal-replay");
+            replayThread.start();
+        }
+        log.info("Async ingest enabled: capacity={}, workers={}, batchSize={}, backpressure={}, wal={}",
+                 queueCapacity, workers, batchSize, policy, writeAheadLog.isEnabled());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writers == null) {
+            return;
+        }
+        running = false;
+        if (replayThread != null) {
+            replayThread.interrupt();
+        }
+        writers.shutdown();
+        if (!writers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Async ingest writers did not drain in time; {} events left in memory", queue.size());
+            writers.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Queues an already validated event and returns the acknowledgement, or {@code null} when the
+     * back-pressure policy refused it.
+     */
+    public UsageEventResponse enqueue(UsageEventRequest request) {
+        String eventId = usageEventService.generateEventId();
+        QueuedUsageEvent event = new QueuedUsageEvent(eventId, request, System.currentTimeMillis());
+
+        boolean reserved;
+        if (policy == BackpressurePolicy.BLOCK) {
+            try {
+                reserved = slots.tryAcquire(blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reserved = false;
+            }
+        } else {
+            reserved = slots.tryAcquire();
+        }
+        if (!reserved && policy != BackpressurePolicy.SPILL) {
+            rejectedCounter.increment();
+            return null;
+        }
+
+        if (writeAheadLog.isEnabled()) {
+            try {
+                writeAheadLog.append(event);
+            } catch (RuntimeException e) {
+                if (reserved) {
+                    slots.release();
+                }
+                throw e;
+            }
+        }
+        if (reserved) {
+            queue.add(event);
+        } else {
+            spillStore.append(event);
+            spilledCounter.increment();
+        }
+        acceptedCounter.increment();
+        return new UsageEventResponse(eventId, request.getCustomerId(), request.getUserId(),
+                                      request.getVendor(), request.getModel(), request.getApiType(),
+                                      request.getTimestamp());
+    }
+
+    private void drainLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedUsageEvent first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (running) {
+                        drainSpill();
+                    }
+                    continue;
+                }
+                List<QueuedUsageEvent> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                slots.release(batch.size());
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Async ingest writer failed", e);
+            }
+        }
+    }
+
+    private void replay(List<QueuedUsageEvent> events) {
+        try {
+            for (QueuedUsageEvent event : events) {
+                slots.acquire();
+                queue.add(event);
+            }
+            log.info("Queued {} write-ahead log events for replay", events.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainSpill() throws InterruptedException {
+        Path file = spillStore.takeOldestFile();
+        if (file == null) {
+            return;
+        }
+        List<QueuedUsageEvent> events = spillStore.read(file);
+        boolean persisted = true;
+        for (int from = 0; from < events.size() && persisted; from += batchSize) {
+            persisted = persist(events.subList(from, Math.min(from + batchSize, events.size())));
+        }
+        if (persisted) {
+            spillStore.complete(file, events.size());
+        } else {
+            spillStore.release(file);
+        }
+    }
+
+    private boolean persist(List<QueuedUsageEvent> batch) throws InterruptedException {
+        List<QueuedUsageEvent> pending = batch;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                pending = skipCommitted(pending);
+                break;
+            } catch (RuntimeException e) {
+                if (!retry(batch.size(), attempt, e)) {
+                    return false;
+                }
+            }
+        }
+        if (pending.size() < batch.size()) {
+            List<QueuedUsageEvent> committed = new ArrayList<>(batch);
+            committed.removeAll(pending);
+            markApplied(committed);
+        }
+        if (pending.isEmpty()) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        for (QueuedUsageEvent event : pending) {
+            queueLatency.record(Math.max(0, now - event.getEnqueuedAt()), TimeUnit.MILLISECONDS);
+        }
+        return write(pending);
+    }
+
+    private boolean write(List<QueuedUsageEvent> events) throws InterruptedException {
+        List<UsageEventRequest> requests = new ArrayList<>(events.size());
+        List<String> eventIds = new ArrayList<>(events.size());
+        for (QueuedUsageEvent event : events) {
+            requests.add(event.getRequest());
+            eventIds.add(event.getEventId());
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                BatchIngestResponse result = usageEventService.processUsageEventBatch(requests, eventIds);
+                persistedCounter.increment(result.getSucceeded());
+                failedCounter.increment(result.getFailed());
+                for (BatchIngestResponse.ItemResult item : result.getResults()) {
+                    if (item.getError() != null) {
+                        log.warn("Dropped queued event {}: {}", eventIds.get(item.getIndex()), item.getError());
+                    }
+                }
+                markApplied(events);
+                return true;
+            } catch (RuntimeException e) {
+                if (!isUnavailable(e)) {
+                    return isolate(events, e);
+                }
+                if (!retry(events.size(), attempt, e)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the halves of a batch that failed for a reason other than the database being
+     * unavailable, down to single events; a single event that still fails is dead-lettered, since
+     * its rolled-back transaction wrote nothing.
+     */
+    private boolean isolate(List<QueuedUsageEvent> events, RuntimeException e) throws InterruptedException {
+        if (events.size() > 1) {
+            log.warn("Persisting {} queued events failed, splitting the batch", events.size(), e);
+            int middle = events.size() / 2;
+            boolean first = write(events.subList(0, middle));
+            boolean second = write(events.subList(middle, events.size()));
+            return first && second;
+        }
+        QueuedUsageEvent event = events.get(0);
+        log.error("Dead-lettering queued event {}", event.getEventId(), e);
+        deadLetterStore.append(event, e);
+        deadLetteredCounter.increment();
+        markApplied(events);
+        return true;
+    }
+
+    /** Failures that say nothing about the rows written, which a later attempt may get past. */
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+            || e instanceof DataAccessResourceFailureException
+            || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * Backs off before another attempt, or returns {@code false} when the batch should be given
+     * up: after {@code max-attempts} without the write-ahead log, and only on shutdown with it, since
+     * the log holds the batch until it commits and replays it on the next start.
+     */
+    private boolean retry(int size, int attempt, RuntimeException e) throws InterruptedException {
+        boolean giveUp = writeAheadLog.isEnabled() ? !running : attempt >= maxAttempts;
+        if (giveUp) {
+            log.error("Failed to persist {} queued events after {} attempts", size, attempt, e);
+            if (!writeAheadLog.isEnabled()) {
+                failedCounter.increment(size);
+            }
+            return false;
+        }
+        log.warn("Persisting {} queued events failed (attempt {}), retrying", size, attempt, e);
+        Thread.sleep(Math.min(500L * attempt, 5000L));
+        return true;
+    }
+
+    private List<QueuedUsageEvent> skipCommitted(List<QueuedUsageEvent> batch) {
+        List<String> replayedIds = new ArrayList<>();
+        for (QueuedUsageEvent event : batch) {
+            if (event.isReplayed()) {
+                replayedIds.add(event.getEventId());
+            }
+        }
+        if (replayedIds.isEmpty()) {
+            return batch;
+        }
+        Set<String> committed = usageEventService.findExistingEventIds(replayedIds);
+        if (committed.isEmpty()) {
+            return batch;
+        }
+        List<QueuedUsageEvent> remaining = new ArrayList<>(batch.size());
+        for (QueuedUsageEvent event : batch) {
+            if (!committed.contains(event.getEventId())) {
+                remaining.add(event);
+            }
+        }
+        log.info("Skipped {} replayed events that were already committed", committed.size());
+        return remaining;
+    }
+
+    private void markApplied(List<QueuedUsageEvent> batch) {
+        Map<Long, Integer> appliedPerSegment = new HashMap<>();
+        for (QueuedUsageEvent event : batch) {
+            if (event.getWalSegment() != null) {
+                appliedPerSegment.merge(event.getWalSegment(), 1, Integer::sum);
+            }
+        }
+        appliedPerSegment.forEach(writeAheadLog::markApplied);
+    }
+
+    private void registerMetrics() {
+        Gauge.builder("ingest.queue.depth", queue, BlockingQueue::size)
+            .description("Events waiting in the async ingest queue")
+            .register(meterRegistry);
+        Gauge.builder("ingest.queue.remaining.capacity", queue, BlockingQueue::remainingCapacity)
+            .register(meterRegistry);
+        Gauge.builder("ingest.queue.oldest.age", queue, q -> {
+                QueuedUsageEvent head = q.peek();
+                return head == null ? 0.0 : (System.currentTimeMillis() - head.getEnqueuedAt()) / 1000.0;
+            })
+            .description("Age in seconds of the oldest queued event")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        Gauge.builder("ingest.spill.pending", spillStore, IngestSpillStore::getPending)
+            .register(meterRegistry);
+        Gauge.builder("ingest.wal.pending", writeAheadLog, IngestWriteAheadLog::getPending)
+            .description("Logged events not yet committed to the database")
+            .register(meterRegistry);
+        Gauge.builder("ingest.wal.segments", writeAheadLog, IngestWriteAheadLog::getSegmentCount)
+            .register(meterRegistry);
+
+        acceptedCounter = outcomeCounter("accepted");
+        rejectedCounter = outcomeCounter("rejected");
+        spilledCounter = outcomeCounter("spilled");
+        persistedCounter = outcomeCounter("persisted");
+        failedCounter = outcomeCounter("failed");
+        deadLetteredCounter = outcomeCounter("dead_lettered");
+        queueLatency = Timer.builder("ingest.queue.latency")
+            .description("Time between acknowledgement and the start of persistence")
+            .register(meterRegistry);
+    }
+
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("ingest.events").tag("outcome", outcome).register(meterRegistry);
+    }
+}
@@ -1,182 +1,168 @@
 package com.llmtracker.service;
 
 import com.llmtracker.entity.UsageEvent;
-import com.llmtracker.entity.VendorPricing;
-import com.llmtracker.repository.VendorPricingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Optional;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Prices events from the current {@link PricingCatalog}. Costs are computed in nano-dollars with
+ * {@link FixedPointMoney} and only converted to {@link BigDecimal} when stored on the event; an
+ * event whose amounts do not fit exactly is priced with the equivalent {@link BigDecimal} path.
+ * Both paths round costs, revenue and profit to 6 decimal places with HALF_UP, the scale of the
+ * cost columns.
+ */
 @Service
 public class CostCalculationService {
 
+    private static final int MONEY_SCALE = 6;
+    private static final int MAX_CACHED_MARKUPS = 1024;
+
     @Autowired
-    private VendorPricingRepository vendorPricingRepository;
+    private PricingCatalogService pricingCatalogService;
+
+    private final ConcurrentMap<Double, Markup> markups = new ConcurrentHashMap<>();
+
+    /**
+     * {@code 1 + markupPercentage / 100} built exactly as the decimal path does, with the double
+     * division, so both paths use the same multiplier.
+     */
+    private static final class Markup {
+        private final BigDecimal multiplier;
+        private final long unscaled;
+        private final int scale;
+
+        private Markup(Double markupPercentage) {
+            this.multiplier = BigDecimal.ONE.add(BigDecimal.valueOf(markupPercentage / 100.0));
+            this.scale = multiplier.scale();
+            this.unscaled = multiplier.precision() <= 18 && scale >= 0
+                ? multiplier.unscaledValue().longValue()
+                : FixedPointMoney.INEXACT;
+        }
+    }
 
     public void calculateCosts(UsageEvent event) {
-        BigDecimal totalCost = BigDecimal.ZERO;
-        BigDecimal inputCost = BigDecimal.ZERO;
-        BigDecimal outputCost = BigDecimal.ZERO;
+        calculateCosts(event, event.getCustomer().getMarkupPercentage());
+    }
+
+    /**
+     * Same as {@link #calculateCosts(UsageEvent)} with the customer's markup passed in, so the
+     * event's customer can be an uninitialized reference.
+     */
+    public void calculateCosts(UsageEvent event, Double markupPercentage) {
+        PricingCatalog catalog = pricingCatalogService.current();
+        Markup markup = markup(markupPercentage);
+        if (!calculateFixedPoint(event, catalog, markup)) {
+            calculateDecimal(event, catalog, markup);
+        }
+        event.setPricingVersion(catalog.getVersion());
+    }
+
+    private boolean calculateFixedPoint(UsageEvent event, PricingCatalog catalog, Markup markup) {
+        long inputCost = 0;
+        long outputCost = 0;
+        long totalCost = 0;
 
         if (event.getInputTokens() != null && event.getInputTokens() > 0) {
-            inputCost = calculateTokenCost(event.getVendor(), event.getModel(), event.getApiType(), 
-                                         "input_tokens", event.getInputTokens());
+            inputCost = FixedPointMoney.multiply(price(catalog, event, "input_tokens").getNanos(), event.getInputTokens());
         }
 
         if (event.getOutputTokens() != null && event.getOutputTokens() > 0) {
-            outputCost = calculateTokenCost(event.getVendor(), event.getModel(), event.getApiType(), 
-                                          "output_tokens", event.getOutputTokens());
+            outputCost = FixedPointMoney.multiply(price(catalog, event, "output_tokens").getNanos(), event.getOutputTokens());
         }
 
         if (event.getImageCount() != null && event.getImageCount() > 0) {
-            BigDecimal imageCost = calculateImageCost(event.getVendor(), event.getModel(), event.getApiType(), 
-                                                    event.getImageCount());
-            totalCost = totalCost.add(imageCost);
+            long imageCost = FixedPointMoney.multiply(price(catalog, event, "image_count").getNanos(), event.getImageCount());
+            totalCost = FixedPointMoney.add(totalCost, imageCost);
         }
 
         if (event.getVideoCount() != null && event.getVideoCount() > 0) {
-            BigDecimal videoCost = calculateVideoCost(event.getVendor(), event.getModel(), event.getApiType(), 
-                                                    event.getVideoCount());
-            totalCost = totalCost.add(videoCost);
+            long videoCost = FixedPointMoney.multiply(price(catalog, event, "video_count").getNanos(), event.getVideoCount());
+            totalCost = FixedPointMoney.add(totalCost, videoCost);
         }
 
-        if (event.getAudioMinutes() != null && event.getAudioMinutes().compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal audioCost = calculateAudioCost(event.getVendor(), event.getModel(), event.getApiType(), 
-                                                    event.getAudioMinutes());
-            totalCost = totalCost.add(audioCost);
+        if (event.getAudioMinutes() != null && event.getAudioMinutes().signum() > 0) {
+            long audioCost = FixedPointMoney.multiply(price(catalog, event, "audio_minutes").getNanos(), event.getAudioMinutes());
+            totalCost = FixedPointMoney.add(totalCost, audioCost);
         }
 
-        totalCost = totalCost.add(inputCost).add(outputCost);
-
-        event.setInputCost(inputCost);
-        event.setOutputCost(outputCost);
-        event.setTotalCost(totalCost);
-
-        calculateRevenueAndProfit(event);
-    }
-
-    private BigDecimal calculateTokenCost(String vendor, String model, String apiType, String metricType, Long tokens) {
-        Optional<VendorPricing> pricing = vendorPricingRepository.findByVendorModelApiTypeAndMetric(
-            vendor, model, apiType, metricType);
+        totalCost = FixedPointMoney.add(totalCost, FixedPointMoney.add(inputCost, outputCost));
 
-        if (pricing.isPresent()) {
-            BigDecimal pricePerToken = pricing.get().getPricePerUnit();
-            return pricePerToken.multiply(BigDecimal.valueOf(tokens));
+        long revenue = FixedPointMoney.roundHalfUp(FixedPointMoney.multiply(totalCost, markup.unscaled),
+                                                   FixedPointMoney.SCALE + markup.scale, MONEY_SCALE);
+        long revenueNanos = FixedPointMoney.multiply(revenue, 1000);
+        long profit = FixedPointMoney.roundHalfUp(FixedPointMoney.add(revenueNanos, -totalCost),
+                                                  FixedPointMoney.SCALE, MONEY_SCALE);
+        if (profit == FixedPointMoney.INEXACT || inputCost == FixedPointMoney.INEXACT || outputCost == FixedPointMoney.INEXACT) {
+            return false;
         }
 
-        return getDefaultTokenCost(vendor, model, metricType, tokens);
+        event.setInputCost(toMoney(inputCost));
+        event.setOutputCost(toMoney(outputCost));
+        event.setTotalCost(toMoney(totalCost));
+        event.setRevenue(FixedPointMoney.toDecimal(revenue, MONEY_SCALE));
+        event.setProfit(FixedPointMoney.toDecimal(profit, MONEY_SCALE));
+        return true;
     }
 
-    private BigDecimal calculateImageCost(String vendor, String model, String apiType, Integer imageCount) {
-        Optional<VendorPricing> pricing = vendorPricingRepository.findByVendorModelApiTypeAndMetric(
-            vendor, model, apiType, "image_count");
+    private void calculateDecimal(UsageEvent event, PricingCatalog catalog, Markup markup) {
+        BigDecimal totalCost = BigDecimal.ZERO;
+        BigDecimal inputCost = BigDecimal.ZERO;
+        BigDecimal outputCost = BigDecimal.ZERO;
 
-        if (pricing.isPresent()) {
-            BigDecimal pricePerImage = pricing.get().getPricePerUnit();
-            return pricePerImage.multiply(BigDecimal.valueOf(imageCount));
+        if (event.getInputTokens() != null && event.getInputTokens() > 0) {
+            inputCost = price(catalog, event, "input_tokens").getDecimal().multiply(BigDecimal.valueOf(event.getInputTokens()));
         }
 
-        return getDefaultImageCost(vendor, model, imageCount);
-    }
-
-    private BigDecimal calculateVideoCost(String vendor, String model, String apiType, Integer videoCount) {
-        Optional<VendorPricing> pricing = vendorPricingRepository.findByVendorModelApiTypeAndMetric(
-            vendor, model, apiType, "video_count");
-
-        if (pricing.isPresent()) {
-            BigDecimal pricePerVideo = pricing.get().getPricePerUnit();
-            return pricePerVideo.multiply(BigDecimal.valueOf(videoCount));
+        if (event.getOutputTokens() != null && event.getOutputTokens() > 0) {
+            outputCost = price(catalog, event, "output_tokens").getDecimal().multiply(BigDecimal.valueOf(event.getOutputTokens()));
         }
 
-        return getDefaultVideoCost(vendor, model, videoCount);
-    }
+        if (event.getImageCount() != null && event.getImageCount() > 0) {
+            totalCost = totalCost.add(price(catalog, event, "image_count").getDecimal().multiply(BigDecimal.valueOf(event.getImageCount())));
+        }
 
-    private BigDecimal calculateAudioCost(String vendor, String model, String apiType, BigDecimal audioMinutes) {
-        Optional<VendorPricing> pricing = vendorPricingRepository.findByVendorModelApiTypeAndMetric(
-            vendor, model, apiType, "audio_minutes");
+        if (event.getVideoCount() != null && event.getVideoCount() > 0) {
+            totalCost = totalCost.add(price(catalog, event, "video_count").getDecimal().multiply(BigDecimal.valueOf(event.getVideoCount())));
+        }
 
-        if (pricing.isPresent()) {
-            BigDecimal pricePerMinute = pricing.get().getPricePerUnit();
-            return pricePerMinute.multiply(audioMinutes);
+        if (event.getAudioMinutes() != null && event.getAudioMinutes().signum() > 0) {
+            totalCost = totalCost.add(price(catalog, event, "audio_minutes").getDecimal().multiply(event.getAudioMinutes()));
         }
 
-        return getDefaultAudioCost(vendor, model, audioMinutes);
-    }
+        totalCost = totalCost.add(inputCost).add(outputCost);
 
-    private void calculateRevenueAndProfit(UsageEvent event) {
-        BigDecimal totalCost = event.getTotalCost();
-        Double markupPercentage = event.getCustomer().getMarkupPercentage();
-        
-        BigDecimal markupMultiplier = BigDecimal.ONE.add(BigDecimal.valueOf(markupPercentage / 100.0));
-        BigDecimal revenue = totalCost.multiply(markupMultiplier).setScale(6, RoundingMode.HALF_UP);
-        
-        BigDecimal profit = revenue.subtract(totalCost).setScale(6, RoundingMode.HALF_UP);
-        
+        BigDecimal revenue = totalCost.multiply(markup.multiplier).setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+        BigDecimal profit = revenue.subtract(totalCost).setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+
+        event.setInputCost(inputCost.setScale(MONEY_SCALE, RoundingMode.HALF_UP));
+        event.setOutputCost(outputCost.setScale(MONEY_SCALE, RoundingMode.HALF_UP));
+        event.setTotalCost(totalCost.setScale(MONEY_SCALE, RoundingMode.HALF_UP));
         event.setRevenue(revenue);
         event.setProfit(profit);
     }
 
-    private BigDecimal getDefaultTokenCost(String vendor, String model, String metricType, Long tokens) {
-        BigDecimal pricePerToken = BigDecimal.ZERO;
-        
-        if ("OpenAI".equals(vendor)) {
-            if ("gpt-4".equals(model)) {
-                pricePerToken = "input_tokens".equals(metricType) ? 
-                    new BigDecimal("0.00003") : new BigDecimal("0.00006");
-            } else if ("gpt-3.5-turbo".equals(model)) {
-                pricePerToken = "input_tokens".equals(metricType) ? 
-                    new BigDecimal("0.0000015") : new BigDecimal("0.000002");
-            }
-        } else if ("Anthropic".equals(vendor)) {
-            if ("claude-3-opus".equals(model)) {
-                pricePerToken = "input_tokens".equals(metricType) ? 
-                    new BigDecimal("0.000015") : new BigDecimal("0.000075");
-            } else if ("claude-3-sonnet".equals(model)) {
-                pricePerToken = "input_tokens".equals(metricType) ? 
-                    new BigDecimal("0.000003") : new BigDecimal("0.000015");
-            }
-        } else if ("Google".equals(vendor)) {
-            if ("gemini-pro".equals(model)) {
-                pricePerToken = "input_tokens".equals(metricType) ? 
-                    new BigDecimal("0.0000005") : new BigDecimal("0.0000015");
-            }
-        }
-        
-        return pricePerToken.multiply(BigDecimal.valueOf(tokens));
-    }
-
-    private BigDecimal getDefaultImageCost(String vendor, String model, Integer imageCount) {
-        BigDecimal pricePerImage = BigDecimal.ZERO;
-        
-        if ("OpenAI".equals(vendor) && "dall-e-3".equals(model)) {
-            pricePerImage = new BigDecimal("0.040");
-        } else if ("OpenAI".equals(vendor) && "dall-e-2".equals(model)) {
-            pricePerImage = new BigDecimal("0.020");
-        }
-        
-        return pricePerImage.multiply(BigDecimal.valueOf(imageCount));
+    private PricingCatalog.Price price(PricingCatalog catalog, UsageEvent event, String metricType) {
+        return catalog.unitPrice(event.getVendor(), event.getModel(), event.getApiType(), metricType, event.getRegion());
     }
 
-    private BigDecimal getDefaultVideoCost(String vendor, String model, Integer videoCount) {
-        BigDecimal pricePerVideo = BigDecimal.ZERO;
-        
-        if ("OpenAI".equals(vendor) && "sora".equals(model)) {
-            pricePerVideo = new BigDecimal("0.050");
+    private Markup markup(Double markupPercentage) {
+        Markup markup = markups.get(markupPercentage);
+        if (markup == null) {
+            if (markups.size() >= MAX_CACHED_MARKUPS) {
+                markups.clear();
+            }
+            markup = new Markup(markupPercentage);
+            markups.put(markupPercentage, markup);
         }
-        
-        return pricePerVideo.multiply(BigDecimal.valueOf(videoCount));
+        return markup;
     }
 
-    private BigDecimal getDefaultAudioCost(String vendor, String model, BigDecimal audioMinutes) {
-        BigDecimal pricePerMinute = BigDecimal.ZERO;
-        
-        if ("OpenAI".equals(vendor) && "whisper-1".equals(model)) {
-            pricePerMinute = new BigDecimal("0.006");
-        }
-        
-        return pricePerMinute.multiply(audioMinutes);
+    private static BigDecimal toMoney(long nanos) {
+        return FixedPointMoney.toDecimal(FixedPointMoney.roundHalfUp(nanos, FixedPointMoney.SCALE, MONEY_SCALE), MONEY_SCALE);
     }
 }
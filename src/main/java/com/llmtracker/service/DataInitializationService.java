@@ -11,10 +11,13 @@ import com.llmtracker.repository.VendorPricingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 @Component
 public class DataInitializationService implements CommandLineRunner {
@@ -96,7 +99,7 @@ public class DataInitializationService implements CommandLineRunner {
                         event.setRevenue(event.getTotalCost().multiply(BigDecimal.valueOf(1.3 + rand.nextDouble() * 0.7)));
                         event.setProfit(event.getRevenue().subtract(event.getTotalCost()));
                     }
-                    usageEventRepository.save(event);
+                    saveEvent(event);
                     totalEvents++;
                 }
             }
@@ -116,6 +119,15 @@ public class DataInitializationService implements CommandLineRunner {
     @Autowired
     private UsageEventRepository usageEventRepository;
 
+    @Autowired
+    private UsageEventIdService usageEventIdService;
+
+    @Autowired
+    private UsageEventService usageEventService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
 
@@ -146,7 +158,7 @@ public class DataInitializationService implements CommandLineRunner {
                     String apiType = apiTypes[rand.nextInt(apiTypes.length)];
                     String region = regions[rand.nextInt(regions.length)];
                     LocalDateTime timestamp = date.plusHours(rand.nextInt(24)).plusMinutes(rand.nextInt(60));
-                    String eventId = "evt_startup_" + eventIdCounter++ + "_" + rand.nextInt(100000);
+                    String eventId = "evt_startup_" + eventIdCounter++ + "_" + java.util.UUID.randomUUID().toString().substring(0, 8);
                     UsageEvent event = new UsageEvent(eventId, vendor, model, apiType, customer, user, timestamp);
                     event.setRegion(region);
                     event.setRequestCount(1);
@@ -198,7 +210,7 @@ public class DataInitializationService implements CommandLineRunner {
                         event.setRevenue(event.getTotalCost().multiply(BigDecimal.valueOf(1.3 + rand.nextDouble() * 0.7)));
                         event.setProfit(event.getRevenue().subtract(event.getTotalCost()));
                     }
-                    usageEventRepository.save(event);
+                    saveEvent(event);
                 }
             }
         }
@@ -437,7 +449,7 @@ public class DataInitializationService implements CommandLineRunner {
         event.setStatus("success");
         event.setMetadata("{\"temperature\": 0.7, \"max_tokens\": 1000}");
         
-        usageEventRepository.save(event);
+        saveEvent(event);
     }
 
     private void createImageEvent(String eventId, Customer customer, User user, String vendor, String model,
@@ -459,7 +471,7 @@ public class DataInitializationService implements CommandLineRunner {
         event.setStatus("success");
         event.setMetadata("{\"size\": \"1024x1024\", \"quality\": \"hd\"}");
         
-        usageEventRepository.save(event);
+        saveEvent(event);
     }
 
     private void createAudioEvent(String eventId, Customer customer, User user, String vendor, String model,
@@ -481,6 +493,14 @@ public class DataInitializationService implements CommandLineRunner {
         event.setStatus("success");
         event.setMetadata("{\"response_format\": \"json\", \"language\": \"en\"}");
         
-        usageEventRepository.save(event);
+        saveEvent(event);
+    }
+
+    private void saveEvent(UsageEvent event) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            usageEventIdService.claim(List.of(event));
+            usageEventRepository.save(event);
+            usageEventService.recordWritten(List.of(event));
+        });
     }
 }
@@ -0,0 +1,102 @@
+package com.llmtracker.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Long arithmetic on amounts held as nano-dollars (9 decimal places) for the pricing hot path.
+ * Every operation returns {@link #INEXACT} instead of overflowing or dropping digits, and any
+ * {@code INEXACT} operand propagates, so callers check once at the end and fall back to
+ * {@link BigDecimal} when the fixed-point result would not be exact.
+ */
+final class FixedPointMoney {
+
+    static final int SCALE = 9;
+    static final long INEXACT = Long.MIN_VALUE;
+
+    private static final long[] POW10 = new long[19];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private FixedPointMoney() {}
+
+    static long toNanos(BigDecimal amount) {
+        if (amount.scale() > SCALE || amount.precision() - amount.scale() > 9) {
+            BigDecimal stripped = amount.stripTrailingZeros();
+            if (stripped.scale() > SCALE || stripped.precision() - stripped.scale() > 9) {
+                return INEXACT;
+            }
+            amount = stripped;
+        }
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    static long multiply(long a, long b) {
+        if (a == INEXACT || b == INEXACT) {
+            return INEXACT;
+        }
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return low == INEXACT ? INEXACT : low;
+        }
+        return INEXACT;
+    }
+
+    static long add(long a, long b) {
+        if (a == INEXACT || b == INEXACT) {
+            return INEXACT;
+        }
+        long sum = a + b;
+        if (((a ^ sum) & (b ^ sum)) < 0 || sum == INEXACT) {
+            return INEXACT;
+        }
+        return sum;
+    }
+
+    /**
+     * Multiplies nano-dollars by a decimal quantity such as audio minutes; the result is only
+     * exact when the product has no digits beyond nano precision.
+     */
+    static long multiply(long nanos, BigDecimal quantity) {
+        if (nanos == INEXACT || quantity.scale() > 18 || quantity.precision() > 18) {
+            return INEXACT;
+        }
+        int scale = Math.max(quantity.scale(), 0);
+        BigInteger unscaled = quantity.setScale(scale).unscaledValue();
+        if (unscaled.bitLength() > 62) {
+            return INEXACT;
+        }
+        long product = multiply(nanos, unscaled.longValue());
+        if (product == INEXACT || product % POW10[scale] != 0) {
+            return INEXACT;
+        }
+        return product / POW10[scale];
+    }
+
+    /**
+     * Rescales {@code value} from {@code fromScale} to a smaller {@code toScale}, rounding half
+     * away from zero like {@link java.math.RoundingMode#HALF_UP}.
+     */
+    static long roundHalfUp(long value, int fromScale, int toScale) {
+        if (value == INEXACT || fromScale - toScale >= POW10.length) {
+            return INEXACT;
+        }
+        long divisor = POW10[fromScale - toScale];
+        long quotient = value / divisor;
+        long remainder = Math.abs(value % divisor);
+        if (remainder * 2 >= divisor) {
+            quotient += value < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    static BigDecimal toDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+}
@@ -0,0 +1,53 @@
+package com.llmtracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps queued events the database rejects on every attempt, one NDJSON record per event with the
+ * error and the time it was given up, so they can be inspected and re-submitted by hand.
+ */
+@Component
+public class IngestDeadLetterStore {
+
+    private static final String FILE_NAME = "dead-letter.ndjson";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ingest.async.dead-letter-dir:./data/ingest-dead-letter}")
+    private String deadLetterDir;
+
+    public synchronized void append(QueuedUsageEvent event, Throwable error) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("eventId", event.getEventId());
+        record.put("request", event.getRequest());
+        record.put("error", String.valueOf(error.getMessage()));
+        record.put("failedAt", Instant.now().toString());
+        Path directory = Paths.get(deadLetterDir);
+        try {
+            Files.createDirectories(directory);
+            try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(FILE_NAME), StandardCharsets.UTF_8,
+                                                                 StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to dead-letter usage event " + event.getEventId(), e);
+        }
+    }
+}
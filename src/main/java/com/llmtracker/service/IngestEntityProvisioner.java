@@ -0,0 +1,59 @@
+package com.llmtracker.service;
+
+import com.llmtracker.dto.UsageEventRequest;
+import com.llmtracker.entity.Customer;
+import com.llmtracker.entity.User;
+import com.llmtracker.repository.CustomerRepository;
+import com.llmtracker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Creates customers and users that first appear in ingested events with
+ * {@code INSERT ... ON CONFLICT DO NOTHING}. When two ingest threads race on the same id, the unique
+ * index on the external id ({@code uk_users_user_id} for users) makes the losing insert wait for
+ * the winner to commit and then do nothing, instead of failing; the loser then re-reads the
+ * winner's row. Each creation joins the caller's transaction when there is one and otherwise
+ * commits on its own.
+ */
+@Service
+public class IngestEntityProvisioner {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Transactional
+    public void createCustomerIfAbsent(UsageEventRequest request) {
+        Customer customer = new Customer(request.getCustomerId(),
+                                       request.getCustomerDetails().getOrganizationName(),
+                                       request.getCustomerDetails().getContactEmail());
+        customer.setContactPhone(request.getCustomerDetails().getContactPhone());
+        customer.setAddress(request.getCustomerDetails().getAddress());
+        LocalDateTime now = LocalDateTime.now();
+        customer.setCreatedAt(now);
+        customer.setUpdatedAt(now);
+        customerRepository.insertIfAbsent(customer);
+    }
+
+    @Transactional
+    public void createUserIfAbsent(UsageEventRequest request, Long customerPk) {
+        User user = new User(request.getUserId(),
+                           request.getUserDetails().getFirstName(),
+                           request.getUserDetails().getLastName(),
+                           request.getUserDetails().getEmail(),
+                           User.NO_LOGIN_PASSWORD,
+                           null);
+        user.setDepartment(request.getUserDetails().getDepartment());
+        user.setRole(request.getUserDetails().getRole());
+        LocalDateTime now = LocalDateTime.now();
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+        userRepository.insertIfAbsent(user, customerPk);
+    }
+}
@@ -0,0 +1,193 @@
+package com.llmtracker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.llmtracker.dto.UsageEventRequest;
+import com.llmtracker.entity.Customer;
+import com.llmtracker.entity.User;
+import com.llmtracker.repository.CustomerRepository;
+import com.llmtracker.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Resolves the external {@code customerId} / {@code userId} of ingested events to database ids
+ * through a bounded cache, so a known customer and user cost no queries. Entries hold only what
+ * ingest needs (the primary key, plus the markup for customers); callers attach events through
+ * {@code EntityManager#getReference}. Entries are evicted when a customer or user is changed
+ * through the API and expire after {@code ingest.resolution-cache.ttl-seconds} to pick up changes
+ * made elsewhere. Rows created by the current transaction are not cached until a later lookup
+ * finds them committed, so a rolled-back ingest cannot leave a dangling id behind.
+ */
+@Service
+public class IngestEntityResolver {
+
+    public static class ResolvedCustomer {
+        private final Long id;
+        private final String customerId;
+        private final Double markupPercentage;
+
+        public ResolvedCustomer(Customer customer) {
+            this.id = customer.getId();
+            this.customerId = customer.getCustomerId();
+            this.markupPercentage = customer.getMarkupPercentage();
+        }
+
+        public Long getId() { return id; }
+        public String getCustomerId() { return customerId; }
+        public Double getMarkupPercentage() { return markupPercentage; }
+    }
+
+    public static class ResolvedUser {
+        private final Long id;
+        private final String userId;
+
+        public ResolvedUser(User user) {
+            this.id = user.getId();
+            this.userId = user.getUserId();
+        }
+
+        public Long getId() { return id; }
+        public String getUserId() { return userId; }
+    }
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private IngestEntityProvisioner provisioner;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ingest.resolution-cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${ingest.resolution-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private Cache<String, ResolvedCustomer> customers;
+    private Cache<String, ResolvedUser> users;
+
+    @PostConstruct
+    public void init() {
+        customers = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        users = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, customers, "ingest.customers");
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "ingest.users");
+    }
+
+    public ResolvedCustomer resolveCustomer(UsageEventRequest request) {
+        ResolvedCustomer cached = customers.getIfPresent(request.getCustomerId());
+        if (cached != null) {
+            return cached;
+        }
+        Optional<Customer> existing = customerRepository.findByCustomerId(request.getCustomerId());
+        if (existing.isPresent()) {
+            return cacheCustomer(existing.get());
+        }
+        if (request.getCustomerDetails() == null) {
+            throw new RuntimeException("Customer not found and no customer details provided");
+        }
+        provisioner.createCustomerIfAbsent(request);
+        return new ResolvedCustomer(customerRepository.findByCustomerId(request.getCustomerId())
+            .orElseThrow(() -> new RuntimeException("Customer " + request.getCustomerId() + " could not be created")));
+    }
+
+    public ResolvedUser resolveUser(UsageEventRequest request, ResolvedCustomer customer) {
+        ResolvedUser cached = users.getIfPresent(request.getUserId());
+        if (cached != null) {
+            return cached;
+        }
+        Optional<User> existing = userRepository.findByUserId(request.getUserId());
+        if (existing.isPresent()) {
+            return cacheUser(existing.get());
+        }
+        if (request.getUserDetails() == null) {
+            throw new RuntimeException("User not found and no user details provided");
+        }
+        provisioner.createUserIfAbsent(request, customer.getId());
+        return new ResolvedUser(userRepository.findByUserId(request.getUserId())
+            .orElseThrow(() -> new RuntimeException("User " + request.getUserId() + " could not be created")));
+    }
+
+    /**
+     * Preloads the given ids with one query per entity type, so a batch only pays for the ids that
+     * are not cached yet. Unknown ids are left for {@link #resolveCustomer} / {@link #resolveUser}.
+     */
+    public void preload(Collection<String> customerIds, Collection<String> userIds) {
+        Set<String> missingCustomers = new HashSet<>(customerIds);
+        missingCustomers.removeAll(customers.getAllPresent(customerIds).keySet());
+        if (!missingCustomers.isEmpty()) {
+            customerRepository.findByCustomerIdIn(missingCustomers).forEach(this::cacheCustomer);
+        }
+
+        Set<String> missingUsers = new HashSet<>(userIds);
+        missingUsers.removeAll(users.getAllPresent(userIds).keySet());
+        if (!missingUsers.isEmpty()) {
+            userRepository.findByUserIdIn(missingUsers).forEach(this::cacheUser);
+        }
+    }
+
+    public void evictCustomer(String customerId) {
+        evictNowAndAfterCommit(customers, customerId);
+    }
+
+    public void evictUser(String userId) {
+        evictNowAndAfterCommit(users, userId);
+    }
+
+    private ResolvedCustomer cacheCustomer(Customer customer) {
+        ResolvedCustomer resolved = new ResolvedCustomer(customer);
+        customers.put(resolved.getCustomerId(), resolved);
+        return resolved;
+    }
+
+    private ResolvedUser cacheUser(User user) {
+        ResolvedUser resolved = new ResolvedUser(user);
+        users.put(resolved.getUserId(), resolved);
+        return resolved;
+    }
+
+    /**
+     * Evicts immediately and again once the surrounding transaction commits, so an ingest that
+     * reads the old row before the commit cannot leave a stale entry behind.
+     */
+    private <V> void evictNowAndAfterCommit(Cache<String, V> cache, String key) {
+        if (key == null) {
+            return;
+        }
+        cache.invalidate(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(key);
+                }
+            });
+        }
+    }
+}
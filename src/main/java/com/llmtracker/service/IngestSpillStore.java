@@ -0,0 +1,182 @@
+package com.llmtracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Overflow area for the async ingest queue. Events that do not fit in memory are appended as
+ * NDJSON to small rotating files and handed back to the writers, oldest file first, once they
+ * have spare capacity.
+ */
+@Component
+public class IngestSpillStore {
+
+    private static final String FILE_PREFIX = "spill-";
+    private static final String FILE_SUFFIX = ".ndjson";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ingest.async.spill-dir:./data/ingest-spill}")
+    private String spillDir;
+
+    @Value("${ingest.async.batch-size:500}")
+    private int recordsPerFile;
+
+    private Path directory;
+    private Path currentFile;
+    private BufferedWriter currentWriter;
+    private int currentRecords;
+    private long fileSequence;
+    private long pending;
+    private final Set<Path> claimed = new HashSet<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(spillDir);
+        fileSequence = System.currentTimeMillis();
+        if (Files.isDirectory(directory)) {
+            for (Path file : listFiles()) {
+                pending += read(file).size();
+            }
+        }
+    }
+
+    public synchronized void append(QueuedUsageEvent event) {
+        try {
+            if (currentWriter == null) {
+                openNextFile();
+            }
+            currentWriter.write(objectMapper.writeValueAsString(event));
+            currentWriter.newLine();
+            currentWriter.flush();
+            currentRecords++;
+            pending++;
+            if (currentRecords >= recordsPerFile) {
+                closeCurrentFile();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill usage event " + event.getEventId(), e);
+        }
+    }
+
+    /**
+     * Claims the oldest unclaimed spill file, closing the file currently being written if it is
+     * the only one left. The caller deletes it with {@link #complete(Path, int)} once its events
+     * are persisted, or hands it back with {@link #release(Path)}.
+     */
+    public synchronized Path takeOldestFile() {
+        try {
+            List<Path> files = listFiles();
+            files.remove(currentFile);
+            files.removeAll(claimed);
+            Path file = null;
+            if (!files.isEmpty()) {
+                file = files.get(0);
+            } else if (currentRecords > 0) {
+                file = currentFile;
+                closeCurrentFile();
+            }
+            if (file != null) {
+                claimed.add(file);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list spill files in " + directory, e);
+        }
+    }
+
+    public List<QueuedUsageEvent> read(Path file) {
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            List<QueuedUsageEvent> events = new ArrayList<>();
+            for (String line : (Iterable<String>) lines::iterator) {
+                if (!line.isBlank()) {
+                    events.add(objectMapper.readValue(line, QueuedUsageEvent.class));
+                }
+            }
+            return events;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read spill file " + file, e);
+        }
+    }
+
+    public synchronized void complete(Path file, int events) {
+        try {
+            Files.deleteIfExists(file);
+            claimed.remove(file);
+            pending = Math.max(0, pending - events);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete spill file " + file, e);
+        }
+    }
+
+    public synchronized void release(Path file) {
+        claimed.remove(file);
+    }
+
+    /**
+     * Deletes every spill file left by a previous run. Used when the write-ahead log is enabled,
+     * since everything that was spilled was logged first and is replayed from there.
+     */
+    public synchronized void discardAll() {
+        try {
+            for (Path file : listFiles()) {
+                if (!file.equals(currentFile)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            pending = currentRecords;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to discard spill files in " + directory, e);
+        }
+    }
+
+    public synchronized long getPending() {
+        return pending;
+    }
+
+    private void openNextFile() throws IOException {
+        Files.createDirectories(directory);
+        currentFile = directory.resolve(FILE_PREFIX + String.format("%020d", fileSequence++) + FILE_SUFFIX);
+        currentWriter = Files.newBufferedWriter(currentFile, StandardCharsets.UTF_8);
+        currentRecords = 0;
+    }
+
+    private void closeCurrentFile() throws IOException {
+        if (currentWriter != null) {
+            currentWriter.close();
+        }
+        currentWriter = null;
+        currentFile = null;
+        currentRecords = 0;
+    }
+
+    private List<Path> listFiles() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(f -> f.getFileName().toString().startsWith(FILE_PREFIX) && f.getFileName().toString().endsWith(FILE_SUFFIX))
+                .sorted()
+                .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.llmtracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of events acknowledged by the async ingest pipeline but not yet committed to
+ * {@code usage_events}. Each segment is a preallocated, memory-mapped file of
+ * {@code [length][crc32][json]} records; a zero length marks the end of written data and a CRC
+ * mismatch marks a torn write. A segment is deleted once it is sealed and every record in it has
+ * been reported applied. Segments left on disk at startup are handed back by {@link #recover()}.
+ *
+ * Writes land in the page cache, so they survive a process crash; set {@code ingest.wal.fsync}
+ * to also force every append to disk.
+ */
+@Component
+public class IngestWriteAheadLog {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestWriteAheadLog.class);
+
+    private static final String FILE_PREFIX = "wal-";
+    private static final String FILE_SUFFIX = ".log";
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ingest.wal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ingest.wal.dir:./data/ingest-wal}")
+    private String walDir;
+
+    @Value("${ingest.wal.segment-size:67108864}")
+    private int segmentSize;
+
+    @Value("${ingest.wal.fsync:false}")
+    private boolean fsync;
+
+    private final Map<Long, Segment> segments = new HashMap<>();
+    private Segment active;
+    private long nextSegmentId = 1;
+
+    private static class Segment {
+        private final long id;
+        private final Path path;
+        private FileChannel channel;
+        private MappedByteBuffer buffer;
+        private int appended;
+        private int applied;
+        private boolean sealed;
+
+        private Segment(long id, Path path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads every segment left by a previous run. The returned events are flagged as replayed and
+     * carry their segment id, so they are released through {@link #markApplied} like new ones.
+     */
+    public synchronized List<QueuedUsageEvent> recover() {
+        List<QueuedUsageEvent> recovered = new ArrayList<>();
+        try {
+            Path directory = Paths.get(walDir);
+            Files.createDirectories(directory);
+            for (Path file : listSegmentFiles(directory)) {
+                long id = segmentId(file);
+                nextSegmentId = Math.max(nextSegmentId, id + 1);
+
+                List<QueuedUsageEvent> events = readSegment(file);
+                if (events.isEmpty()) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                Segment segment = new Segment(id, file);
+                segment.sealed = true;
+                segment.appended = events.size();
+                segments.put(id, segment);
+                for (QueuedUsageEvent event : events) {
+                    event.setWalSegment(id);
+                    event.setReplayed(true);
+                    recovered.add(event);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover ingest write-ahead log from " + walDir, e);
+        }
+        if (!recovered.isEmpty()) {
+            log.info("Recovered {} unapplied events from {} write-ahead log segments", recovered.size(), segments.size());
+        }
+        return recovered;
+    }
+
+    public synchronized void append(QueuedUsageEvent event) {
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(event);
+            int recordSize = RECORD_HEADER_BYTES + payload.length;
+            if (recordSize > segmentSize) {
+                throw new IllegalArgumentException("Event " + event.getEventId() + " is larger than a write-ahead log segment");
+            }
+            if (active == null || active.buffer.remaining() < recordSize) {
+                roll();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            active.buffer.putInt(payload.length);
+            active.buffer.putInt((int) crc.getValue());
+            active.buffer.put(payload);
+            if (fsync) {
+                active.buffer.force();
+            }
+            active.appended++;
+            event.setWalSegment(active.id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append event " + event.getEventId() + " to write-ahead log", e);
+        }
+    }
+
+    public synchronized void markApplied(long segmentId, int count) {
+        Segment segment = segments.get(segmentId);
+        if (segment == null) {
+            return;
+        }
+        segment.applied += count;
+        deleteIfApplied(segment);
+    }
+
+    public synchronized long getPending() {
+        long pending = 0;
+        for (Segment segment : segments.values()) {
+            pending += segment.appended - segment.applied;
+        }
+        return pending;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            seal(active);
+            active = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            seal(active);
+        }
+        Path directory = Paths.get(walDir);
+        Files.createDirectories(directory);
+        long id = nextSegmentId++;
+        Segment segment = new Segment(id, directory.resolve(FILE_PREFIX + String.format("%020d", id) + FILE_SUFFIX));
+        segment.channel = FileChannel.open(segment.path, StandardOpenOption.CREATE_NEW,
+                                           StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment.buffer = segment.channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segments.put(id, segment);
+        active = segment;
+    }
+
+    private void seal(Segment segment) throws IOException {
+        segment.buffer.force();
+        segment.channel.close();
+        segment.sealed = true;
+        deleteIfApplied(segment);
+    }
+
+    private void deleteIfApplied(Segment segment) {
+        if (!segment.sealed || segment.applied < segment.appended) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(segment.path);
+            segments.remove(segment.id);
+        } catch (IOException e) {
+            log.warn("Failed to delete applied write-ahead log segment {}", segment.path, e);
+        }
+    }
+
+    private List<QueuedUsageEvent> readSegment(Path file) throws IOException {
+        List<QueuedUsageEvent> events = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Stopping replay of {} at a torn record", file);
+                break;
+            }
+            events.add(objectMapper.readValue(payload, QueuedUsageEvent.class));
+        }
+        return events;
+    }
+
+    private List<Path> listSegmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(f -> f.getFileName().toString().startsWith(FILE_PREFIX) && f.getFileName().toString().endsWith(FILE_SUFFIX))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,194 @@
+package com.llmtracker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code usage_events} in shape: creates the current month and
+ * {@code partitioning.premake-months} ahead, moves rows that landed in the default partition into
+ * a partition of their own month, and, when {@code partitioning.retention-months} is set, detaches
+ * and drops whole months that have aged out along with their rollup, sketch and anomaly rows. Each
+ * step runs in its own short transaction under an advisory lock, so several instances can run it
+ * safely.
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    private static final String PARENT = "usage_events";
+    private static final String DEFAULT_PARTITION = "usage_events_default";
+    private static final Pattern PARTITION_NAME = Pattern.compile("usage_events_p(\\d{6})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd 00:00:00");
+    private static final long LOCK_KEY = 0x75736167655F7061L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${partitioning.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainSafely();
+    }
+
+    @Scheduled(fixedDelayString = "${partitioning.maintenance-interval-ms:3600000}",
+               initialDelayString = "${partitioning.maintenance-interval-ms:3600000}")
+    public void maintainSafely() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.error("Partition maintenance of {} failed", PARENT, e);
+        }
+    }
+
+    public synchronized void maintain() {
+        if (!enabled || !isPartitioned()) {
+            return;
+        }
+
+        for (YearMonth month : monthsInDefaultPartition()) {
+            createPartition(month);
+        }
+
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= premakeMonths; i++) {
+            createPartition(current.plusMonths(i));
+        }
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (YearMonth month : listPartitions()) {
+                if (month.isBefore(oldestKept)) {
+                    dropPartition(month);
+                }
+            }
+        }
+    }
+
+    public TreeSet<YearMonth> listPartitions() {
+        List<String> names = jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = CAST(? AS regclass)", String.class, PARENT);
+        TreeSet<YearMonth> months = new TreeSet<>();
+        for (String name : names) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                months.add(YearMonth.parse(matcher.group(1), SUFFIX));
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Creates the partition for {@code month} if it is missing. Rows for that month already sitting
+     * in the default partition are moved into the new table before it is attached, since Postgres
+     * refuses to attach a range the default partition still holds rows for.
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String bounds = "FOR VALUES FROM ('" + month.atDay(1).format(BOUND) + "') TO ('" + month.plusMonths(1).atDay(1).format(BOUND) + "')";
+
+        inLockedTransaction(() -> {
+            if (listPartitions().contains(month)) {
+                return;
+            }
+            Integer stray = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?", Integer.class, from, to);
+            if (stray == null || stray == 0) {
+                jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + PARENT + " " + bounds);
+                log.info("Created partition {}", partition);
+                return;
+            }
+            jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + PARENT + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            jdbcTemplate.update("INSERT INTO " + partition + " SELECT * FROM " + DEFAULT_PARTITION +
+                " WHERE timestamp >= ? AND timestamp < ?", from, to);
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?", from, to);
+            jdbcTemplate.execute("ALTER TABLE " + PARENT + " ATTACH PARTITION " + partition + " " + bounds);
+            log.info("Created partition {} with {} rows moved from {}", partition, stray, DEFAULT_PARTITION);
+        });
+    }
+
+    private void dropPartition(YearMonth month) {
+        String partition = partitionName(month);
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        Date firstDay = Date.valueOf(month.atDay(1));
+        Date nextMonth = Date.valueOf(month.plusMonths(1).atDay(1));
+        inLockedTransaction(() -> {
+            if (!listPartitions().contains(month)) {
+                return;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + PARENT + " DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            jdbcTemplate.update("DELETE FROM " + UsageEventIdService.TABLE + " WHERE timestamp >= ? AND timestamp < ?", from, to);
+            for (String rollup : List.of(UsageRollupService.HOURLY_TABLE, UsageRollupService.DAILY_TABLE)) {
+                jdbcTemplate.update("DELETE FROM " + rollup + " WHERE bucket >= ? AND bucket < ?", from, to);
+            }
+            for (String daily : List.of(UsageSketchService.TABLE, UsageQuantileService.TABLE, UsageAnomalyService.ANOMALIES_TABLE)) {
+                jdbcTemplate.update("DELETE FROM " + daily + " WHERE day >= ? AND day < ?", firstDay, nextMonth);
+            }
+            log.info("Dropped partition {} past the {}-month retention", partition, retentionMonths);
+        });
+    }
+
+    private TreeSet<YearMonth> monthsInDefaultPartition() {
+        List<Timestamp> months = jdbcTemplate.queryForList(
+            "SELECT DISTINCT date_trunc('month', timestamp) FROM " + DEFAULT_PARTITION, Timestamp.class);
+        TreeSet<YearMonth> result = new TreeSet<>();
+        for (Timestamp month : months) {
+            result.add(YearMonth.from(month.toLocalDateTime()));
+        }
+        return result;
+    }
+
+    private boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+            "SELECT CAST(relkind AS varchar) FROM pg_class WHERE oid = to_regclass(?)", String.class, PARENT);
+        return !kinds.isEmpty() && "p".equals(kinds.get(0));
+    }
+
+    private void inLockedTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY);
+            if (Boolean.TRUE.equals(locked)) {
+                work.run();
+            }
+        });
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARENT + "_p" + month.format(SUFFIX);
+    }
+}
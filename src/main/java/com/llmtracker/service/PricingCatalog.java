@@ -0,0 +1,182 @@
+package com.llmtracker.service;
+
+import com.llmtracker.entity.VendorPricing;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of the active {@code vendor_pricing} rows keyed by
+ * (vendor, model, apiType, metricType, region). A lookup tries the event's region, then the
+ * region-less row, then the built-in list prices, and finally prices the metric at zero.
+ */
+public final class PricingCatalog {
+
+    public static final class Price {
+
+        static final Price ZERO = new Price(BigDecimal.ZERO);
+
+        private final BigDecimal decimal;
+        private final long nanos;
+
+        private Price(BigDecimal decimal) {
+            this.decimal = decimal;
+            this.nanos = FixedPointMoney.toNanos(decimal);
+        }
+
+        public BigDecimal getDecimal() {
+            return decimal;
+        }
+
+        /**
+         * The price in nano-dollars, or {@link FixedPointMoney#INEXACT} when it has more than
+         * nine decimal places.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    private static final Map<Key, Price> DEFAULT_PRICES = defaultPrices();
+
+    private final long version;
+    private final String fingerprint;
+    private final Map<Key, Price> prices;
+
+    private PricingCatalog(long version, String fingerprint, Map<Key, Price> prices) {
+        this.version = version;
+        this.fingerprint = fingerprint;
+        this.prices = prices;
+    }
+
+    /**
+     * Builds a catalog from active pricing rows. When several rows share a key the one with the
+     * lowest id wins, so the result does not depend on query order.
+     */
+    public static PricingCatalog of(long version, String fingerprint, List<VendorPricing> rows) {
+        Map<Key, Price> prices = new HashMap<>();
+        rows.stream()
+            .sorted(Comparator.comparing(VendorPricing::getId))
+            .forEach(row -> prices.putIfAbsent(
+                new Key(row.getVendor(), row.getModel(), row.getApiType(), row.getMetricType(), row.getRegion()),
+                new Price(row.getPricePerUnit())));
+        return new PricingCatalog(version, fingerprint, Collections.unmodifiableMap(prices));
+    }
+
+    /**
+     * Content hash of the pricing rows; two row sets with the same prices share a fingerprint
+     * regardless of ids, timestamps or ordering.
+     */
+    public static String fingerprint(List<VendorPricing> rows) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            rows.stream()
+                .map(row -> String.join("|", row.getVendor(), row.getModel(), row.getApiType(), row.getMetricType(),
+                                        String.valueOf(row.getRegion()), row.getPricePerUnit().stripTrailingZeros().toPlainString(),
+                                        row.getCurrency()))
+                .sorted()
+                .forEach(line -> digest.update((line + "\n").getBytes(StandardCharsets.UTF_8)));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public Price unitPrice(String vendor, String model, String apiType, String metricType, String region) {
+        Price price = null;
+        if (region != null) {
+            price = prices.get(new Key(vendor, model, apiType, metricType, region));
+        }
+        if (price == null) {
+            price = prices.get(new Key(vendor, model, apiType, metricType, null));
+        }
+        if (price == null) {
+            price = DEFAULT_PRICES.get(new Key(vendor, model, null, metricType, null));
+        }
+        return price != null ? price : Price.ZERO;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public int size() {
+        return prices.size();
+    }
+
+    private static Map<Key, Price> defaultPrices() {
+        Map<Key, Price> defaults = new HashMap<>();
+        putDefault(defaults, "OpenAI", "gpt-4", "input_tokens", "0.00003");
+        putDefault(defaults, "OpenAI", "gpt-4", "output_tokens", "0.00006");
+        putDefault(defaults, "OpenAI", "gpt-3.5-turbo", "input_tokens", "0.0000015");
+        putDefault(defaults, "OpenAI", "gpt-3.5-turbo", "output_tokens", "0.000002");
+        putDefault(defaults, "Anthropic", "claude-3-opus", "input_tokens", "0.000015");
+        putDefault(defaults, "Anthropic", "claude-3-opus", "output_tokens", "0.000075");
+        putDefault(defaults, "Anthropic", "claude-3-sonnet", "input_tokens", "0.000003");
+        putDefault(defaults, "Anthropic", "claude-3-sonnet", "output_tokens", "0.000015");
+        putDefault(defaults, "Google", "gemini-pro", "input_tokens", "0.0000005");
+        putDefault(defaults, "Google", "gemini-pro", "output_tokens", "0.0000015");
+        putDefault(defaults, "OpenAI", "dall-e-3", "image_count", "0.040");
+        putDefault(defaults, "OpenAI", "dall-e-2", "image_count", "0.020");
+        putDefault(defaults, "OpenAI", "sora", "video_count", "0.050");
+        putDefault(defaults, "OpenAI", "whisper-1", "audio_minutes", "0.006");
+        return Collections.unmodifiableMap(defaults);
+    }
+
+    private static void putDefault(Map<Key, Price> defaults, String vendor, String model, String metricType, String price) {
+        defaults.put(new Key(vendor, model, null, metricType, null), new Price(new BigDecimal(price)));
+    }
+
+    private static final class Key {
+        private final String vendor;
+        private final String model;
+        private final String apiType;
+        private final String metricType;
+        private final String region;
+        private final int hash;
+
+        private Key(String vendor, String model, String apiType, String metricType, String region) {
+            this.vendor = vendor;
+            this.model = model;
+            this.apiType = apiType;
+            this.metricType = metricType;
+            this.region = region;
+            this.hash = Objects.hash(vendor, model, apiType, metricType, region);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                && Objects.equals(vendor, other.vendor)
+                && Objects.equals(model, other.model)
+                && Objects.equals(apiType, other.apiType)
+                && Objects.equals(metricType, other.metricType)
+                && Objects.equals(region, other.region);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
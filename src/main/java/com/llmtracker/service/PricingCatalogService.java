@@ -0,0 +1,111 @@
+package com.llmtracker.service;
+
+import com.llmtracker.entity.VendorPricing;
+import com.llmtracker.repository.PricingCatalogVersionRepository;
+import com.llmtracker.repository.VendorPricingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link PricingCatalog}. The catalog is loaded at startup and replaced as a
+ * whole when pricing changes: immediately after a {@link VendorPricing} change commits through
+ * JPA, and on a fixed-delay poll for edits made directly in the database.
+ */
+@Service
+public class PricingCatalogService {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingCatalogService.class);
+
+    private static final long RELOAD_DELAY_MS = 250;
+
+    @Autowired
+    private VendorPricingRepository vendorPricingRepository;
+
+    @Autowired
+    private PricingCatalogVersionRepository versionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicReference<PricingCatalog> current = new AtomicReference<>();
+    private final AtomicBoolean reloadQueued = new AtomicBoolean();
+    private ScheduledExecutorService reloader;
+
+    @PostConstruct
+    public void init() {
+        reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "pricing-catalog-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reload();
+    }
+
+    @PreDestroy
+    public void stop() {
+        reloader.shutdownNow();
+    }
+
+    public PricingCatalog current() {
+        return current.get();
+    }
+
+    /**
+     * Schedules a reload on the background thread shortly after the call; requests made while one
+     * is already queued are folded into it, so a burst of pricing writes yields one new version.
+     */
+    public void reloadAsync() {
+        if (reloadQueued.compareAndSet(false, true)) {
+            reloader.schedule(() -> {
+                reloadQueued.set(false);
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    log.error("Failed to reload pricing catalog", e);
+                }
+            }, RELOAD_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pricing.catalog.refresh-interval-ms:60000}",
+               initialDelayString = "${pricing.catalog.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.error("Failed to refresh pricing catalog", e);
+        }
+    }
+
+    public synchronized void reload() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<VendorPricing> rows = vendorPricingRepository.findByActiveTrue();
+            String fingerprint = PricingCatalog.fingerprint(rows);
+            PricingCatalog previous = current.get();
+            if (previous != null && previous.getFingerprint().equals(fingerprint)) {
+                return;
+            }
+            versionRepository.insertIfAbsent(fingerprint);
+            long version = versionRepository.findByFingerprint(fingerprint)
+                .orElseThrow(() -> new IllegalStateException("Pricing catalog version was not recorded"))
+                .getVersion();
+            PricingCatalog catalog = PricingCatalog.of(version, fingerprint, rows);
+            current.set(catalog);
+            log.info("Loaded pricing catalog version {} with {} prices", version, catalog.size());
+        });
+    }
+}
@@ -0,0 +1,147 @@
+package com.llmtracker.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Quantile sketch over non-negative values with logarithmic buckets (the DDSketch mapping): bucket
+ * {@code i} holds the values in {@code (gamma^(i-1), gamma^i]}, so any quantile is answered within
+ * {@link #RELATIVE_ACCURACY} of a value actually seen at that rank. Sketches merge exactly by adding
+ * bucket counts, so a quantile over any set of days is the quantile of their merged sketch. Values
+ * below {@link #MIN_VALUE} count as zero. Serialized sketches are varint-encoded buckets.
+ */
+public final class QuantileSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    public static final double MIN_VALUE = 1e-9;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final byte ENCODING = 0;
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    private long zeroCount;
+    private long count;
+
+    public void offer(double value) {
+        if (value < MIN_VALUE) {
+            zeroCount++;
+        } else {
+            buckets.merge((int) Math.ceil(Math.log(value) / LOG_GAMMA), 1L, Long::sum);
+        }
+        count++;
+    }
+
+    public void merge(QuantileSketch other) {
+        other.buckets.forEach((index, n) -> buckets.merge(index, n, Long::sum));
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** The value at rank {@code q * (count - 1)}, or null when the sketch is empty. */
+    public Double quantile(double q) {
+        if (count == 0) {
+            return null;
+        }
+        double rank = q * (count - 1);
+        long seen = zeroCount;
+        if (seen > rank) {
+            return 0.0;
+        }
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen > rank) {
+                return 2 * Math.pow(GAMMA, bucket.getKey()) / (GAMMA + 1);
+            }
+        }
+        return 2 * Math.pow(GAMMA, buckets.lastKey()) / (GAMMA + 1);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + buckets.size() * 3);
+        out.write(ENCODING);
+        writeVarint(out, zeroCount);
+        writeVarint(out, buckets.size());
+        int previous = 0;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            int delta = bucket.getKey() - previous;
+            writeVarint(out, ((delta << 1) ^ (delta >> 31)) & 0xffffffffL);
+            writeVarint(out, bucket.getValue());
+            previous = bucket.getKey();
+        }
+        return out.toByteArray();
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.merge(bytes);
+        return sketch;
+    }
+
+    /** Merges a serialized sketch without materializing it. */
+    public void merge(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return;
+        }
+        if (bytes[0] != ENCODING) {
+            throw new IllegalArgumentException("Unknown sketch encoding " + bytes[0]);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        long zeros = readVarint(buffer);
+        zeroCount += zeros;
+        count += zeros;
+        long size = readVarint(buffer);
+        int index = 0;
+        for (long i = 0; i < size; i++) {
+            int zigzag = (int) readVarint(buffer);
+            index += (zigzag >>> 1) ^ -(zigzag & 1);
+            long n = readVarint(buffer);
+            buckets.merge(index, n, Long::sum);
+            count += n;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof QuantileSketch)) {
+            return false;
+        }
+        QuantileSketch other = (QuantileSketch) o;
+        return zeroCount == other.zeroCount && buckets.equals(other.buckets);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(zeroCount) + buckets.hashCode();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.llmtracker.service;
+
+import com.llmtracker.dto.UsageEventRequest;
+
+public class QueuedUsageEvent {
+
+    private String eventId;
+    private UsageEventRequest request;
+    private long enqueuedAt;
+    private Long walSegment;
+    private boolean replayed;
+
+    public QueuedUsageEvent() {}
+
+    public QueuedUsageEvent(String eventId, UsageEventRequest request, long enqueuedAt) {
+        this.eventId = eventId;
+        this.request = request;
+        this.enqueuedAt = enqueuedAt;
+    }
+
+    public String getEventId() { return eventId; }
+    public void setEventId(String eventId) { this.eventId = eventId; }
+
+    public UsageEventRequest getRequest() { return request; }
+    public void setRequest(UsageEventRequest request) { this.request = request; }
+
+    public long getEnqueuedAt() { return enqueuedAt; }
+    public void setEnqueuedAt(long enqueuedAt) { this.enqueuedAt = enqueuedAt; }
+
+    public Long getWalSegment() { return walSegment; }
+    public void setWalSegment(Long walSegment) { this.walSegment = walSegment; }
+
+    public boolean isReplayed() { return replayed; }
+    public void setReplayed(boolean replayed) { this.replayed = replayed; }
+}
@@ -0,0 +1,67 @@
+package com.llmtracker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.llmtracker.dto.UsageEventResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Small cache of event responses keyed by {@code eventId}. Ingest fills it once the events are
+ * committed, since most lookups by id happen shortly after an event is written; older events are
+ * loaded on a miss. Events are never modified after ingest, so entries only expire.
+ */
+@Component
+public class RecentEventCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${events.lookup-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${events.lookup-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<String, UsageEventResponse> events;
+
+    @PostConstruct
+    public void init() {
+        events = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, events, "events.lookup");
+    }
+
+    public UsageEventResponse get(String eventId, Function<String, UsageEventResponse> loader) {
+        return events.get(eventId, loader);
+    }
+
+    public void putAfterCommit(List<UsageEventResponse> responses) {
+        if (responses.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            responses.forEach(response -> events.put(response.getEventId(), response));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                responses.forEach(response -> events.put(response.getEventId(), response));
+            }
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package com.llmtracker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.llmtracker.dto.BatchIngestResponse;
+import com.llmtracker.dto.StreamIngestResponse;
+import com.llmtracker.dto.UsageEventRequest;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ingests newline-delimited JSON without buffering the upload. Lines are parsed one at a time and
+ * persisted in chunks of {@code ingest.stream.chunk-size}, each chunk in its own transaction, so
+ * memory is bounded by the chunk size and {@code ingest.stream.max-line-length} whatever the
+ * upload size. A malformed line only rejects that line.
+ */
+@Service
+public class StreamIngestService {
+
+    private static final int LINE = 0;
+    private static final int EOF = 1;
+    private static final int TOO_LONG = 2;
+
+    @Autowired
+    private UsageEventService usageEventService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ingest.stream.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${ingest.stream.max-line-length:65536}")
+    private int maxLineLength;
+
+    @Value("${ingest.stream.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    private ObjectReader requestReader;
+
+    @PostConstruct
+    public void init() {
+        requestReader = objectMapper.readerFor(UsageEventRequest.class);
+    }
+
+    public StreamIngestResponse ingest(InputStream body) throws IOException {
+        StreamIngestResponse response = new StreamIngestResponse();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<UsageEventRequest> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        StringBuilder line = new StringBuilder();
+        long lineNumber = 0;
+
+        while (true) {
+            int status = readLine(reader, line);
+            if (status == EOF && line.length() == 0) {
+                break;
+            }
+            lineNumber++;
+            if (status == TOO_LONG) {
+                response.addRejected(lineNumber, "Line exceeds " + maxLineLength + " characters", maxReportedErrors);
+            } else if (!line.toString().isBlank()) {
+                try {
+                    chunk.add(requestReader.readValue(line.toString()));
+                    chunkLines.add(lineNumber);
+                } catch (JsonProcessingException e) {
+                    response.addRejected(lineNumber, "Malformed JSON: " + e.getOriginalMessage(), maxReportedErrors);
+                }
+                if (chunk.size() >= chunkSize) {
+                    flush(chunk, chunkLines, response);
+                }
+            }
+            if (status == EOF) {
+                break;
+            }
+        }
+        flush(chunk, chunkLines, response);
+        response.setLinesRead(lineNumber);
+        return response;
+    }
+
+    private void flush(List<UsageEventRequest> chunk, List<Long> chunkLines, StreamIngestResponse response) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            BatchIngestResponse result = usageEventService.processUsageEventBatch(chunk);
+            response.addAccepted(result.getSucceeded());
+            for (BatchIngestResponse.ItemResult item : result.getResults()) {
+                if (item.getError() != null) {
+                    response.addRejected(chunkLines.get(item.getIndex()), item.getError(), maxReportedErrors);
+                }
+            }
+        } catch (RuntimeException e) {
+            for (Long chunkLine : chunkLines) {
+                response.addRejected(chunkLine, "Failed to persist chunk: " + e.getMessage(), maxReportedErrors);
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    /**
+     * Reads the next line into {@code line} without the terminator. Characters beyond
+     * {@code maxLineLength} are discarded up to the next newline so an oversized record cannot
+     * grow the buffer.
+     */
+    private int readLine(BufferedReader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        boolean tooLong = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '\n') {
+                return tooLong ? TOO_LONG : LINE;
+            }
+            if (tooLong) {
+                continue;
+            }
+            if (line.length() >= maxLineLength) {
+                tooLong = true;
+                line.setLength(0);
+                continue;
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return tooLong ? TOO_LONG : EOF;
+    }
+}
@@ -0,0 +1,90 @@
+package com.llmtracker.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/**
+ * Time-series resolution for analytics, named as the {@code period} request parameter. The SQL
+ * unit is the {@code date_trunc} field for the bucket.
+ */
+public enum TimeBucket {
+    HOURLY("hourly", "hour"),
+    DAILY("daily", "day"),
+    WEEKLY("weekly", "week"),
+    MONTHLY("monthly", "month");
+
+    private final String period;
+    private final String sqlUnit;
+
+    TimeBucket(String period, String sqlUnit) {
+        this.period = period;
+        this.sqlUnit = sqlUnit;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public String getSqlUnit() {
+        return sqlUnit;
+    }
+
+    /**
+     * Resolves the requested period, moving to coarser buckets while the range would produce more
+     * than {@code maxPoints} of them. Monthly is used however long the range is.
+     *
+     * @throws IllegalArgumentException for an unknown period
+     */
+    public static TimeBucket resolve(String period, LocalDateTime start, LocalDateTime end, int maxPoints) {
+        TimeBucket bucket = fromPeriod(period);
+        while (bucket != MONTHLY && bucket.count(start, end) > maxPoints) {
+            bucket = values()[bucket.ordinal() + 1];
+        }
+        return bucket;
+    }
+
+    public static TimeBucket fromPeriod(String period) {
+        if (period == null || period.isBlank()) {
+            return DAILY;
+        }
+        for (TimeBucket bucket : values()) {
+            if (bucket.period.equals(period.trim().toLowerCase(Locale.ROOT))) {
+                return bucket;
+            }
+        }
+        throw new IllegalArgumentException("Unknown period: " + period);
+    }
+
+    /** Start of the bucket holding {@code time}, as {@code date_trunc} computes it. */
+    public LocalDateTime truncate(LocalDateTime time) {
+        switch (this) {
+            case HOURLY:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case DAILY:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            case WEEKLY:
+                return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            default:
+                return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        }
+    }
+
+    public long count(LocalDateTime start, LocalDateTime end) {
+        switch (this) {
+            case HOURLY:
+                return ChronoUnit.HOURS.between(start.truncatedTo(ChronoUnit.HOURS), end.truncatedTo(ChronoUnit.HOURS)) + 1;
+            case DAILY:
+                return ChronoUnit.DAYS.between(start.toLocalDate(), end.toLocalDate()) + 1;
+            case WEEKLY:
+                return ChronoUnit.WEEKS.between(
+                    start.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                    end.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))) + 1;
+            default:
+                return ChronoUnit.MONTHS.between(YearMonth.from(start), YearMonth.from(end)) + 1;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.llmtracker.service;
+
+import com.llmtracker.dto.AnalyticsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Detects unusual days in each customer's daily events, tokens and cost. Every customer and metric
+ * has a baseline in {@code usage_anomaly_baselines}: an exponentially weighted level, a factor per
+ * day of week and the exponentially weighted variance of the residual. When a day closes its totals
+ * are read from {@code usage_rollup_daily}, scored against {@code level * factor}, stored in
+ * {@code usage_anomalies} when the score reaches the threshold, and folded into the baseline. Days
+ * are processed once and in order, each in a transaction holding the progress row, so several
+ * instances can run the detector; events ingested for a day after it was scored do not rescore it.
+ */
+@Service
+public class UsageAnomalyService {
+
+    private static final Logger log = LoggerFactory.getLogger(UsageAnomalyService.class);
+
+    public static final String ANOMALIES_TABLE = "usage_anomalies";
+
+    private static final String[] METRICS = { "events", "tokens", "cost" };
+
+    /** Smallest deviation scored per metric (an event, a token, a cent), so idle baselines stay comparable. */
+    private static final double[] UNITS = { 1, 1, 0.01 };
+
+    /** Deviations below this share of the expected value are never flagged, however steady the baseline. */
+    private static final double MIN_RELATIVE_DEVIATION = 0.05;
+
+    /** Day-of-week factors average 1, so no day can carry more than the whole week. */
+    private static final double MAX_FACTOR = 7;
+
+    /** Floor of the factor a value is divided by, so near-idle weekdays do not swing the level. */
+    private static final double MIN_FACTOR = 0.1;
+
+    private static final String LOCK_PROGRESS = "SELECT last_day FROM usage_anomaly_progress WHERE id = 1 FOR UPDATE";
+
+    private static final String FIRST_DAY = "SELECT CAST(MIN(bucket) AS date) FROM " + UsageRollupService.DAILY_TABLE;
+
+    private static final String UPDATE_PROGRESS = "UPDATE usage_anomaly_progress SET last_day = ? WHERE id = 1";
+
+    private static final String DAY_TOTALS =
+        "SELECT r.customer_id, c.customer_id AS external_id, SUM(r.events) AS events, SUM(r.tokens) AS tokens, SUM(r.cost) AS cost " +
+        "FROM " + UsageRollupService.DAILY_TABLE + " r JOIN customers c ON c.id = r.customer_id " +
+        "WHERE r.bucket = ? GROUP BY r.customer_id, c.customer_id";
+
+    private static final String BASELINES =
+        "SELECT b.customer_id, c.customer_id AS external_id, b.metric, b.level, b.seasonal, b.variance, b.observations, b.streak " +
+        "FROM usage_anomaly_baselines b JOIN customers c ON c.id = b.customer_id";
+
+    private static final String UPSERT_BASELINE =
+        "INSERT INTO usage_anomaly_baselines (customer_id, metric, level, seasonal, variance, observations, streak) " +
+        "VALUES (?, ?, ?, CAST(? AS double precision[]), ?, ?, ?) ON CONFLICT (customer_id, metric) DO UPDATE SET " +
+        "level = EXCLUDED.level, seasonal = EXCLUDED.seasonal, variance = EXCLUDED.variance, " +
+        "observations = EXCLUDED.observations, streak = EXCLUDED.streak";
+
+    private static final String INSERT_ANOMALY =
+        "INSERT INTO " + ANOMALIES_TABLE + " (day, customer_id, metric, type, value, expected, score) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (customer_id, day, metric) DO UPDATE SET type = EXCLUDED.type, value = EXCLUDED.value, " +
+        "expected = EXCLUDED.expected, score = EXCLUDED.score";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
+    @Value("${analytics.anomalies.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.anomalies.smoothing:0.1}")
+    private double smoothing;
+
+    @Value("${analytics.anomalies.seasonal-smoothing:0.2}")
+    private double seasonalSmoothing;
+
+    @Value("${analytics.anomalies.threshold:3.0}")
+    private double threshold;
+
+    @Value("${analytics.anomalies.warmup-days:28}")
+    private int warmupDays;
+
+    @Value("${analytics.anomalies.shift-days:3}")
+    private int shiftDays;
+
+    private static final class Baseline {
+        private double level;
+        private final double[] seasonal;
+        private double variance;
+        private int observations;
+        private int streak;
+
+        private Baseline(double level, double[] seasonal, double variance, int observations, int streak) {
+            this.level = level;
+            this.seasonal = seasonal;
+            this.variance = variance;
+            this.observations = observations;
+            this.streak = streak;
+        }
+
+        private String seasonalLiteral() {
+            return Arrays.stream(seasonal).mapToObj(Double::toString).collect(Collectors.joining(",", "{", "}"));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        detectSafely();
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.anomalies.check-interval-ms:600000}",
+               initialDelayString = "${analytics.anomalies.check-interval-ms:600000}")
+    public void detectSafely() {
+        try {
+            detect();
+        } catch (RuntimeException e) {
+            log.error("Usage anomaly detection failed", e);
+        }
+    }
+
+    /** Scores every day up to yesterday that has not been scored yet. */
+    public synchronized void detect() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate lastClosed = LocalDate.now().minusDays(1);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int days = 0;
+        while (Boolean.TRUE.equals(transaction.execute(status -> processNextDay(lastClosed)))) {
+            days++;
+        }
+        if (days > 0) {
+            log.info("Scored {} day(s) of usage for anomalies", days);
+        }
+    }
+
+    private boolean processNextDay(LocalDate lastClosed) {
+        LocalDate last = jdbcTemplate.queryForObject(LOCK_PROGRESS, LocalDate.class);
+        LocalDate day = last != null ? last.plusDays(1) : jdbcTemplate.queryForObject(FIRST_DAY, LocalDate.class);
+        if (day == null || day.isAfter(lastClosed)) {
+            return false;
+        }
+        score(day);
+        jdbcTemplate.update(UPDATE_PROGRESS, Date.valueOf(day));
+        return true;
+    }
+
+    private void score(LocalDate day) {
+        Map<Long, String> externalIds = new HashMap<>();
+        Map<Long, double[]> totals = new TreeMap<>();
+        jdbcTemplate.query(DAY_TOTALS, rs -> {
+            externalIds.put(rs.getLong("customer_id"), rs.getString("external_id"));
+            totals.put(rs.getLong("customer_id"),
+                new double[] { rs.getLong("events"), rs.getLong("tokens"), rs.getBigDecimal("cost").doubleValue() });
+        }, Timestamp.valueOf(day.atStartOfDay()));
+
+        Map<Long, Map<String, Baseline>> baselines = new TreeMap<>();
+        jdbcTemplate.query(BASELINES, rs -> {
+            Double[] seasonal = (Double[]) rs.getArray("seasonal").getArray();
+            externalIds.put(rs.getLong("customer_id"), rs.getString("external_id"));
+            baselines.computeIfAbsent(rs.getLong("customer_id"), k -> new HashMap<>()).put(rs.getString("metric"),
+                new Baseline(rs.getDouble("level"), Arrays.stream(seasonal).mapToDouble(Double::doubleValue).toArray(),
+                             rs.getDouble("variance"), rs.getInt("observations"), rs.getInt("streak")));
+        });
+        totals.keySet().forEach(customerId -> baselines.computeIfAbsent(customerId, k -> new HashMap<>()));
+
+        int dayOfWeek = day.getDayOfWeek().getValue() - 1;
+        List<Object[]> baselineRows = new ArrayList<>();
+        List<Object[]> anomalyRows = new ArrayList<>();
+        baselines.forEach((customerId, metrics) -> {
+            double[] values = totals.getOrDefault(customerId, new double[METRICS.length]);
+            for (int i = 0; i < METRICS.length; i++) {
+                double value = values[i];
+                Baseline baseline = metrics.get(METRICS[i]);
+                if (baseline == null) {
+                    double[] seasonal = new double[7];
+                    Arrays.fill(seasonal, 1.0);
+                    baseline = new Baseline(value, seasonal, 0, 1, 0);
+                } else {
+                    Object[] anomaly = observe(baseline, value, dayOfWeek, UNITS[i]);
+                    if (anomaly != null) {
+                        anomalyRows.add(new Object[] { Date.valueOf(day), customerId, METRICS[i], anomaly[0], value, anomaly[1], anomaly[2] });
+                        analyticsCache.invalidateAfterCommit(externalIds.get(customerId), day);
+                    }
+                }
+                baselineRows.add(new Object[] { customerId, METRICS[i], baseline.level, baseline.seasonalLiteral(),
+                                                baseline.variance, baseline.observations, baseline.streak });
+            }
+        });
+        jdbcTemplate.batchUpdate(UPSERT_BASELINE, baselineRows);
+        if (!anomalyRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ANOMALY, anomalyRows);
+        }
+    }
+
+    /**
+     * Scores {@code value} against the baseline, then folds it in. Once warmed up, values beyond the
+     * threshold are clamped to it before updating, so a single spike does not drag the baseline;
+     * {@code shift-days} anomalies in a row in the same direction are taken as a new level, which
+     * restarts the warm-up.
+     *
+     * @return {@code {type, expected, score}} when the value is anomalous, otherwise null
+     */
+    private Object[] observe(Baseline baseline, double value, int dayOfWeek, double unit) {
+        double factor = baseline.seasonal[dayOfWeek];
+        double expected = baseline.level * factor;
+        double deviation = Math.max(unit, Math.max(Math.sqrt(baseline.variance), MIN_RELATIVE_DEVIATION * expected));
+        Object[] anomaly = null;
+        double update = value;
+        baseline.observations++;
+        if (baseline.observations > warmupDays) {
+            double score = (value - expected) / deviation;
+            if (Math.abs(score) < threshold) {
+                baseline.streak = 0;
+            } else {
+                anomaly = new Object[] { score > 0 ? "spike" : "drop", expected, score };
+                int direction = score > 0 ? 1 : -1;
+                baseline.streak = Integer.signum(baseline.streak) == direction ? baseline.streak + direction : direction;
+                if (Math.abs(baseline.streak) >= shiftDays) {
+                    baseline.level = value / Math.max(factor, MIN_FACTOR);
+                    baseline.variance = 0;
+                    baseline.observations = 1;
+                    baseline.streak = 0;
+                    return anomaly;
+                }
+            }
+            update = Math.max(0, Math.max(expected - threshold * deviation, Math.min(value, expected + threshold * deviation)));
+        }
+
+        double residual = update - expected;
+        baseline.variance = (1 - smoothing) * baseline.variance + smoothing * residual * residual;
+        if (baseline.level > 0) {
+            double ratio = Math.min(update / baseline.level, MAX_FACTOR);
+            baseline.seasonal[dayOfWeek] = factor + seasonalSmoothing * (ratio - factor);
+            double sum = Arrays.stream(baseline.seasonal).sum();
+            if (sum > 0) {
+                for (int d = 0; d < baseline.seasonal.length; d++) {
+                    baseline.seasonal[d] *= baseline.seasonal.length / sum;
+                }
+            }
+        }
+        baseline.level += smoothing * (update / Math.max(factor, MIN_FACTOR) - baseline.level);
+        return anomaly;
+    }
+
+    /**
+     * Stored anomalies of the days in {@code [from, to]}, optionally for one customer. Baselines
+     * are kept per customer, so a user filter narrows to the user's customer and a vendor filter
+     * does not apply.
+     */
+    public List<AnalyticsResponse.Anomaly> find(LocalDate from, LocalDate to, String customerId, String userId) {
+        String sql = "SELECT a.day, c.customer_id, a.metric, a.type, a.value, a.expected, a.score " +
+            "FROM " + ANOMALIES_TABLE + " a JOIN customers c ON c.id = a.customer_id WHERE a.day BETWEEN :from AND :to ";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", Date.valueOf(from))
+            .addValue("to", Date.valueOf(to));
+        if (customerId != null && !customerId.trim().isEmpty()) {
+            sql += "AND c.customer_id = :customerId ";
+            params.addValue("customerId", customerId);
+        }
+        if (userId != null && !userId.trim().isEmpty()) {
+            sql += "AND a.customer_id = (SELECT customer_id FROM users WHERE user_id = :userId) ";
+            params.addValue("userId", userId);
+        }
+        sql += "ORDER BY a.day, c.customer_id, a.metric";
+        return namedJdbcTemplate.query(sql, params, (rs, rowNum) -> {
+            AnalyticsResponse.Anomaly anomaly = new AnalyticsResponse.Anomaly();
+            anomaly.setDate(rs.getDate("day").toLocalDate());
+            anomaly.setCustomerId(rs.getString("customer_id"));
+            anomaly.setType(rs.getString("type"));
+            anomaly.setMetric(rs.getString("metric"));
+            anomaly.setValue(rs.getDouble("value"));
+            anomaly.setExpected(rs.getDouble("expected"));
+            anomaly.setScore(rs.getDouble("score"));
+            anomaly.setDescription(String.format("%s %s: %s (expected: %s on %ss, score %.1f)",
+                Character.toUpperCase(anomaly.getMetric().charAt(0)) + anomaly.getMetric().substring(1), anomaly.getType(),
+                format(anomaly.getMetric(), anomaly.getValue()), format(anomaly.getMetric(), anomaly.getExpected()),
+                anomaly.getDate().getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH),
+                anomaly.getScore()));
+            return anomaly;
+        });
+    }
+
+    private static String format(String metric, double value) {
+        return metric.equals("cost") ? String.format("%.2f", value) : Long.toString(Math.round(value));
+    }
+}
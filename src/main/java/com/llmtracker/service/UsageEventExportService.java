@@ -0,0 +1,131 @@
+package com.llmtracker.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.llmtracker.dto.UsageEventFilter;
+import com.llmtracker.dto.UsageEventResponse;
+import com.llmtracker.repository.UsageEventRepository;
+import com.llmtracker.repository.UsageEventSpecifications;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes filtered usage events as CSV or NDJSON straight from a database cursor. Rows are read
+ * {@code events.export.fetch-size} at a time and written through a fixed-size buffer, so memory use
+ * does not depend on the size of the export.
+ */
+@Service
+public class UsageEventExportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final Sort EXPORT_ORDER = Sort.by(Sort.Direction.ASC, "timestamp").and(Sort.by(Sort.Direction.ASC, "id"));
+
+    private static final String CSV_HEADER = "eventId,customerId,userId,vendor,model,apiType,region,timestamp," +
+        "inputTokens,outputTokens,totalTokens,cachedTokens,imageCount,videoCount,audioMinutes,requestCount," +
+        "inputCost,outputCost,totalCost,revenue,profit,currency,pricingVersion," +
+        "requestId,sessionId,endpoint,status,errorMessage,metadata,createdAt";
+
+    @Autowired
+    private UsageEventRepository usageEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${events.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private ObjectWriter rowWriter;
+
+    @PostConstruct
+    public void init() {
+        rowWriter = objectMapper.writerFor(UsageEventResponse.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return FORMAT_CSV.equals(format) || FORMAT_NDJSON.equals(format);
+    }
+
+    @Transactional(readOnly = true)
+    public long export(UsageEventFilter filter, String format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long rows = 0;
+        try (Stream<UsageEventResponse> events = usageEventRepository.streamResponses(
+                UsageEventSpecifications.matching(filter), EXPORT_ORDER, fetchSize)) {
+            Iterator<UsageEventResponse> it = events.iterator();
+            if (FORMAT_CSV.equals(format)) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+                while (it.hasNext()) {
+                    writeCsv(writer, it.next());
+                    rows++;
+                }
+            } else {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                while (it.hasNext()) {
+                    rowWriter.writeValue(generator, it.next());
+                    generator.writeRaw('\n');
+                    rows++;
+                }
+                generator.close();
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private void writeCsv(Writer writer, UsageEventResponse e) throws IOException {
+        Object[] values = {
+            e.getEventId(), e.getCustomerId(), e.getUserId(), e.getVendor(), e.getModel(), e.getApiType(), e.getRegion(), e.getTimestamp(),
+            e.getInputTokens(), e.getOutputTokens(), e.getTotalTokens(), e.getCachedTokens(), e.getImageCount(), e.getVideoCount(),
+            e.getAudioMinutes(), e.getRequestCount(),
+            e.getInputCost(), e.getOutputCost(), e.getTotalCost(), e.getRevenue(), e.getProfit(), e.getCurrency(), e.getPricingVersion(),
+            e.getRequestId(), e.getSessionId(), e.getEndpoint(), e.getStatus(), e.getErrorMessage(), e.getMetadata(), e.getCreatedAt()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] instanceof BigDecimal) {
+                writer.write(((BigDecimal) values[i]).toPlainString());
+            } else if (values[i] != null) {
+                writeCsvField(writer, values[i].toString());
+            }
+        }
+        writer.write('\n');
+    }
+
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
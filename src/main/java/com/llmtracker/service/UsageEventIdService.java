@@ -0,0 +1,40 @@
+package com.llmtracker.service;
+
+import com.llmtracker.entity.UsageEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps event ids unique across the partitions of {@code usage_events}, whose unique indexes must
+ * include the partition key. Every write path claims its events' ids in {@code usage_event_ids}
+ * within the transaction that inserts the events, so a duplicate id fails that transaction with a
+ * {@link org.springframework.dao.DuplicateKeyException} instead of being stored twice.
+ */
+@Service
+public class UsageEventIdService {
+
+    public static final String TABLE = "usage_event_ids";
+
+    private static final String INSERT = "INSERT INTO " + TABLE + " (event_id, timestamp) VALUES (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Claims the events' ids; called in the transaction that inserts them, before the insert. */
+    public void claim(Collection<UsageEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (UsageEvent event : events) {
+            rows.add(new Object[] { event.getEventId(), Timestamp.valueOf(event.getTimestamp()) });
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+}
@@ -1,21 +1,32 @@
 package com.llmtracker.service;
 
 import com.llmtracker.dto.AnalyticsResponse;
+import com.llmtracker.dto.BatchIngestResponse;
+import com.llmtracker.dto.UsageEventFilter;
 import com.llmtracker.dto.UsageEventRequest;
 import com.llmtracker.dto.UsageEventResponse;
+import com.llmtracker.dto.UsageEventSliceResponse;
 import com.llmtracker.entity.Customer;
 import com.llmtracker.entity.UsageEvent;
 import com.llmtracker.entity.User;
-import com.llmtracker.repository.CustomerRepository;
 import com.llmtracker.repository.UsageEventRepository;
-import com.llmtracker.repository.UserRepository;
+import com.llmtracker.repository.UsageEventSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -31,30 +42,196 @@ import java.util.stream.Collectors;
 @Transactional
 public class UsageEventService {
 
+    private static final Sort EVENT_LIST_ORDER = Sort.by(Sort.Direction.DESC, "timestamp").and(Sort.by(Sort.Direction.DESC, "id"));
+
     @Autowired
     private UsageEventRepository usageEventRepository;
 
     @Autowired
-    private CustomerRepository customerRepository;
+    private CostCalculationService costCalculationService;
 
     @Autowired
-    private UserRepository userRepository;
+    private IngestEntityResolver entityResolver;
 
     @Autowired
-    private CostCalculationService costCalculationService;
+    private RecentEventCache recentEventCache;
+
+    @Autowired
+    private AnalyticsQueryEngine analyticsQueryEngine;
+
+    @Autowired
+    private UsageRollupService usageRollupService;
+
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
+    @Autowired
+    private UsageLeaderboard usageLeaderboard;
+
+    @Autowired
+    private UsageSketchService usageSketchService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private UsageQuantileService usageQuantileService;
+
+    @Autowired
+    private UsageAnomalyService usageAnomalyService;
+
+    @Value("${analytics.time-series.max-points:200}")
+    private int maxTimeSeriesPoints;
+
+    @Value("${analytics.top-n.max:100}")
+    private int maxTopN;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UsageEventIdService usageEventIdService;
 
     public UsageEventResponse processUsageEvent(UsageEventRequest request) {
         String eventId = generateEventId();
 
-        Customer customer = getOrCreateCustomer(request);
+        IngestEntityResolver.ResolvedCustomer customer = entityResolver.resolveCustomer(request);
+
+        IngestEntityResolver.ResolvedUser user = entityResolver.resolveUser(request, customer);
+
+        UsageEvent event = buildUsageEvent(eventId, request, customer, user);
+
+        costCalculationService.calculateCosts(event, customer.getMarkupPercentage());
+
+        usageEventIdService.claim(List.of(event));
+        UsageEvent savedEvent = usageEventRepository.save(event);
+
+        UsageEventResponse response = convertToResponse(savedEvent, customer.getCustomerId(), user.getUserId());
+        recordWritten(List.of(savedEvent), List.of(response));
+        return response;
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchIngestResponse processUsageEventBatch(List<UsageEventRequest> requests) {
+        List<String> eventIds = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            eventIds.add(generateEventId());
+        }
+        return processUsageEventBatch(requests, eventIds);
+    }
+
+    /**
+     * Resolves every item's customer and user, creating unknown ones, before the events' transaction
+     * starts: each creation commits on its own, so one that fails is reported against its item
+     * instead of aborting the batch. The events that resolved are then written in one transaction.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BatchIngestResponse processUsageEventBatch(List<UsageEventRequest> requests, List<String> eventIds) {
+        BatchIngestResponse response = new BatchIngestResponse(requests.size());
+
+        Set<String> customerIds = new HashSet<>();
+        Set<String> userIds = new HashSet<>();
+        for (UsageEventRequest request : requests) {
+            if (request != null) {
+                customerIds.add(request.getCustomerId());
+                userIds.add(request.getUserId());
+            }
+        }
+
+        entityResolver.preload(customerIds, userIds);
+
+        List<Integer> eventIndexes = new ArrayList<>(requests.size());
+        List<IngestEntityResolver.ResolvedCustomer> eventCustomers = new ArrayList<>(requests.size());
+        List<IngestEntityResolver.ResolvedUser> eventUsers = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            UsageEventRequest request = requests.get(i);
+            String violation = validate(request);
+            if (violation != null) {
+                response.addFailure(i, violation);
+                continue;
+            }
+            try {
+                IngestEntityResolver.ResolvedCustomer customer = entityResolver.resolveCustomer(request);
+                IngestEntityResolver.ResolvedUser user = entityResolver.resolveUser(request, customer);
+                eventIndexes.add(i);
+                eventCustomers.add(customer);
+                eventUsers.add(user);
+            } catch (RuntimeException e) {
+                response.addFailure(i, e.getMessage());
+            }
+        }
+
+        List<UsageEvent> events = new ArrayList<>(eventIndexes.size());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int j = 0; j < eventIndexes.size(); j++) {
+                int i = eventIndexes.get(j);
+                UsageEvent event = buildUsageEvent(eventIds.get(i), requests.get(i), eventCustomers.get(j), eventUsers.get(j));
+                costCalculationService.calculateCosts(event, eventCustomers.get(j).getMarkupPercentage());
+                events.add(event);
+            }
+            usageEventIdService.claim(events);
+            List<UsageEvent> saved = usageEventRepository.saveAll(events);
+            List<UsageEventResponse> written = new ArrayList<>(saved.size());
+            for (int j = 0; j < saved.size(); j++) {
+                written.add(convertToResponse(saved.get(j), eventCustomers.get(j).getCustomerId(), eventUsers.get(j).getUserId()));
+            }
+            recordWritten(saved, written);
+        });
+
+        for (int i = 0; i < events.size(); i++) {
+            response.addSuccess(eventIndexes.get(i), events.get(i).getEventId());
+        }
+        response.getResults().sort(Comparator.comparingInt(BatchIngestResponse.ItemResult::getIndex));
+        return response;
+    }
+
+    /**
+     * Brings every store derived from {@code usage_events} up to date with events the current
+     * transaction has written, and publishes their responses once it commits. Every write path goes
+     * through here, so a new derived store is added in one place.
+     */
+    public void recordWritten(List<UsageEvent> events, List<UsageEventResponse> responses) {
+        usageRollupService.record(events);
+        usageLeaderboard.record(events);
+        usageSketchService.record(events);
+        usageQuantileService.record(events);
+        recentEventCache.putAfterCommit(responses);
+        analyticsCache.invalidateAfterCommit(responses);
+    }
+
+    /** {@link #recordWritten(List, List)} for events whose customer and user are loaded. */
+    public void recordWritten(List<UsageEvent> events) {
+        List<UsageEventResponse> responses = new ArrayList<>(events.size());
+        for (UsageEvent event : events) {
+            responses.add(convertToResponse(event, event.getCustomer().getCustomerId(), event.getUser().getUserId()));
+        }
+        recordWritten(events, responses);
+    }
 
-        User user = getOrCreateUser(request, customer);
+    private String validate(UsageEventRequest request) {
+        if (request == null) {
+            return "Event must not be null";
+        }
+        Set<ConstraintViolation<UsageEventRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
 
+    private UsageEvent buildUsageEvent(String eventId, UsageEventRequest request,
+                                       IngestEntityResolver.ResolvedCustomer customer, IngestEntityResolver.ResolvedUser user) {
         UsageEvent event = new UsageEvent(eventId, request.getVendor(), request.getModel(), 
-                                        request.getApiType(), customer, user, request.getTimestamp());
+                                        request.getApiType(),
+                                        entityManager.getReference(Customer.class, customer.getId()),
+                                        entityManager.getReference(User.class, user.getId()),
+                                        request.getTimestamp());
 
         event.setRegion(request.getRegion());
         event.setInputTokens(request.getInputTokens());
@@ -73,147 +250,88 @@ public class UsageEventService {
         event.setErrorMessage(request.getErrorMessage());
         event.setMetadata(request.getMetadata());
 
-        costCalculationService.calculateCosts(event);
-
-        UsageEvent savedEvent = usageEventRepository.save(event);
-
-        return convertToResponse(savedEvent);
+        return event;
     }
 
 
-    public Page<UsageEventResponse> getUsageEvents(String customerId, String userId, String vendor, 
-                                                  String model, String apiType, LocalDateTime startDate, 
-                                                  LocalDateTime endDate, Pageable pageable) {
-        List<UsageEvent> allEvents = usageEventRepository.findAll();
-        
-        List<UsageEvent> filteredEvents = allEvents.stream()
-            .filter(event -> customerId == null || customerId.isEmpty() || 
-                           event.getCustomer().getCustomerId().equals(customerId))
-            .filter(event -> userId == null || userId.isEmpty() || 
-                           event.getUser().getUserId().equals(userId))
-            .filter(event -> vendor == null || vendor.isEmpty() || 
-                           event.getVendor().equals(vendor))
-            .filter(event -> model == null || model.isEmpty() || 
-                           event.getModel().equals(model))
-            .filter(event -> apiType == null || apiType.isEmpty() || 
-                           event.getApiType().equals(apiType))
-            .filter(event -> startDate == null || 
-                           event.getTimestamp().isAfter(startDate) || 
-                           event.getTimestamp().isEqual(startDate))
-            .filter(event -> endDate == null || 
-                           event.getTimestamp().isBefore(endDate) || 
-                           event.getTimestamp().isEqual(endDate))
-            .collect(Collectors.toList());
-        
-        int total = filteredEvents.size();
-        int pageSize = pageable.getPageSize();
-        int pageNumber = pageable.getPageNumber();
-        int start = pageNumber * pageSize;
-        int end = Math.min(start + pageSize, total);
-        
-        List<UsageEvent> pageEvents = filteredEvents.subList(start, end);
-        List<UsageEventResponse> pageResponses = pageEvents.stream()
-            .map(this::convertToResponse)
-            .collect(Collectors.toList());
-        
-        return new PageImpl<>(pageResponses, pageable, total);
+    @Transactional(readOnly = true)
+    public Page<UsageEventResponse> getUsageEvents(UsageEventFilter filter, Pageable pageable) {
+        Pageable ordered = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), EVENT_LIST_ORDER);
+        return usageEventRepository.findResponses(UsageEventSpecifications.matching(filter), ordered);
     }
 
-    public AnalyticsResponse getAnalytics(String period, LocalDate startDate, LocalDate endDate, 
-                                        String customerId, String userId, String vendor) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
+    @Transactional(readOnly = true)
+    public UsageEventResponse getUsageEvent(String eventId) {
+        return recentEventCache.get(eventId, id -> usageEventRepository.findResponseByEventId(id).orElse(null));
+    }
 
-        AnalyticsResponse response = new AnalyticsResponse(period, startDate, endDate);
-
-        boolean filterByCustomer = customerId != null && !customerId.trim().isEmpty();
-
-        if (filterByCustomer) {
-            response.setTotalEvents(usageEventRepository.countEventsByCustomerAndDateRange(customerId, startDateTime, endDateTime));
-            response.setTotalTokens(usageEventRepository.sumTotalTokensByCustomerAndDateRange(customerId, startDateTime, endDateTime));
-            response.setTotalCost(usageEventRepository.sumTotalCostByCustomerAndDateRange(customerId, startDateTime, endDateTime));
-            response.setTotalRevenue(usageEventRepository.sumTotalRevenueByCustomerAndDateRange(customerId, startDateTime, endDateTime));
-            response.setTotalProfit(usageEventRepository.sumTotalProfitByCustomerAndDateRange(customerId, startDateTime, endDateTime));
-        } else {
-            response.setTotalEvents(usageEventRepository.countEventsByDateRange(startDateTime, endDateTime));
-            response.setTotalTokens(usageEventRepository.sumTotalTokensByDateRange(startDateTime, endDateTime));
-            response.setTotalCost(usageEventRepository.sumTotalCostByDateRange(startDateTime, endDateTime));
-            response.setTotalRevenue(usageEventRepository.sumTotalRevenueByDateRange(startDateTime, endDateTime));
-            response.setTotalProfit(usageEventRepository.sumTotalProfitByDateRange(startDateTime, endDateTime));
+    /**
+     * Keyset variant of {@link #getUsageEvents}: reads one row past the requested size to decide
+     * whether there is a next slice, and never runs a count query.
+     */
+    @Transactional(readOnly = true)
+    public UsageEventSliceResponse getUsageEventSlice(UsageEventFilter filter, String cursor, int size) {
+        Specification<UsageEvent> spec = UsageEventSpecifications.matching(filter);
+        if (cursor != null && !cursor.isEmpty()) {
+            EventCursor position = EventCursor.decode(cursor);
+            spec = spec.and(UsageEventSpecifications.before(position.getTimestamp(), position.getId()));
         }
 
-        if (response.getTotalRevenue() != null && response.getTotalRevenue().compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal profitMargin = response.getTotalProfit()
-                .divide(response.getTotalRevenue(), 4, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
-            response.setProfitMargin(profitMargin);
-        }
+        List<UsageEventResponse> content = usageEventRepository.findResponses(spec, EVENT_LIST_ORDER, size + 1);
 
-        if (filterByCustomer) {
-            response.setUsageByVendor(convertToMap(usageEventRepository.countEventsByCustomerAndVendor(customerId, startDateTime, endDateTime)));
-            response.setUsageByModel(convertToMap(usageEventRepository.countEventsByCustomerAndModel(customerId, startDateTime, endDateTime)));
-            response.setUsageByApiType(convertToMap(usageEventRepository.countEventsByCustomerAndApiType(customerId, startDateTime, endDateTime)));
-
-            response.setCostByVendor(convertToBigDecimalMap(usageEventRepository.sumCostByCustomerAndVendor(customerId, startDateTime, endDateTime)));
-            response.setCostByModel(convertToBigDecimalMap(usageEventRepository.sumCostByCustomerAndModel(customerId, startDateTime, endDateTime)));
-            response.setCostByApiType(convertToBigDecimalMap(usageEventRepository.sumCostByCustomerAndApiType(customerId, startDateTime, endDateTime)));
-
-            response.setUsageByRegion(convertToMap(usageEventRepository.countEventsByCustomerAndRegion(customerId, startDateTime, endDateTime)));
-            response.setUsageByEndpoint(convertToMap(usageEventRepository.countEventsByCustomerAndEndpoint(customerId, startDateTime, endDateTime)));
-            response.setUsageByUserRole(convertToMap(usageEventRepository.countEventsByCustomerAndUserRole(customerId, startDateTime, endDateTime)));
-        } else {
-            response.setUsageByVendor(convertToMap(usageEventRepository.countEventsByVendor(startDateTime, endDateTime)));
-            response.setUsageByModel(convertToMap(usageEventRepository.countEventsByModel(startDateTime, endDateTime)));
-            response.setUsageByApiType(convertToMap(usageEventRepository.countEventsByApiType(startDateTime, endDateTime)));
-
-            response.setCostByVendor(convertToBigDecimalMap(usageEventRepository.sumCostByVendor(startDateTime, endDateTime)));
-            response.setCostByModel(convertToBigDecimalMap(usageEventRepository.sumCostByModel(startDateTime, endDateTime)));
-            response.setCostByApiType(convertToBigDecimalMap(usageEventRepository.sumCostByApiType(startDateTime, endDateTime)));
-
-            response.setUsageByRegion(convertToMap(usageEventRepository.countEventsByRegion(startDateTime, endDateTime)));
-            response.setUsageByEndpoint(convertToMap(usageEventRepository.countEventsByEndpoint(startDateTime, endDateTime)));
-            response.setUsageByUserRole(convertToMap(usageEventRepository.countEventsByUserRole(startDateTime, endDateTime)));
+        String nextCursor = null;
+        if (content.size() > size) {
+            content = content.subList(0, size);
+            nextCursor = EventCursor.encode(content.get(size - 1));
         }
+        return new UsageEventSliceResponse(content, size, nextCursor);
+    }
 
-        if (filterByCustomer) {
-            response.setTimeSeriesData(convertToTimeSeriesData(usageEventRepository.getTimeSeriesDataByCustomer(customerId, startDateTime, endDateTime)));
-        } else {
-            response.setTimeSeriesData(convertToTimeSeriesData(usageEventRepository.getTimeSeriesData(startDateTime, endDateTime)));
+    /**
+     * @param topN size of the customer and user rankings, capped at {@code analytics.top-n.max}
+     * @throws IllegalArgumentException for an unknown period or a {@code topN} below 1
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AnalyticsResponse getAnalytics(String period, LocalDate startDate, LocalDate endDate, 
+                                        String customerId, String userId, String vendor, int topN) {
+        if (topN < 1) {
+            throw new IllegalArgumentException("topN must be at least 1");
         }
+        int limit = Math.min(topN, maxTopN);
+        return analyticsCache.get(period, startDate, endDate, customerId, userId, vendor, limit,
+            () -> computeAnalytics(period, startDate, endDate, customerId, userId, vendor, limit));
+    }
 
-        if (filterByCustomer) {
-            response.setTopCustomers(new ArrayList<>());
-            response.setTopUsers(convertToUserMetrics(usageEventRepository.getTopUsers(startDateTime, endDateTime)));
-        } else {
-            response.setTopCustomers(convertToCustomerMetrics(usageEventRepository.getTopCustomers(startDateTime, endDateTime)));
-            response.setTopUsers(convertToUserMetrics(usageEventRepository.getTopUsers(startDateTime, endDateTime)));
-        }
+    private AnalyticsResponse computeAnalytics(String period, LocalDate startDate, LocalDate endDate,
+                                               String customerId, String userId, String vendor, int topN) {
+        LocalDateTime startDateTime = startDate.atStartOfDay();
+        LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
+
+        TimeBucket bucket = TimeBucket.resolve(period, startDateTime, endDateTime, maxTimeSeriesPoints);
+        AnalyticsResponse response = new AnalyticsResponse(bucket.getPeriod(), startDate, endDate);
 
         LocalDate prevStartDate = startDate.minusMonths(1);
         LocalDate prevEndDate = endDate.minusMonths(1);
         LocalDateTime prevStartDateTime = prevStartDate.atStartOfDay();
         LocalDateTime prevEndDateTime = prevEndDate.atTime(23, 59, 59);
 
-        Long prevEvents;
-        Long prevTokens;
-        BigDecimal prevCost;
-        BigDecimal prevRevenue;
-        BigDecimal prevProfit;
-
-        if (filterByCustomer) {
-            prevEvents = usageEventRepository.countEventsByCustomerAndDateRange(customerId, prevStartDateTime, prevEndDateTime);
-            prevTokens = usageEventRepository.sumTotalTokensByCustomerAndDateRange(customerId, prevStartDateTime, prevEndDateTime);
-            prevCost = usageEventRepository.sumTotalCostByCustomerAndDateRange(customerId, prevStartDateTime, prevEndDateTime);
-            prevRevenue = usageEventRepository.sumTotalRevenueByCustomerAndDateRange(customerId, prevStartDateTime, prevEndDateTime);
-            prevProfit = usageEventRepository.sumTotalProfitByCustomerAndDateRange(customerId, prevStartDateTime, prevEndDateTime);
-        } else {
-            prevEvents = usageEventRepository.countEventsByDateRange(prevStartDateTime, prevEndDateTime);
-            prevTokens = usageEventRepository.sumTotalTokensByDateRange(prevStartDateTime, prevEndDateTime);
-            prevCost = usageEventRepository.sumTotalCostByDateRange(prevStartDateTime, prevEndDateTime);
-            prevRevenue = usageEventRepository.sumTotalRevenueByDateRange(prevStartDateTime, prevEndDateTime);
-            prevProfit = usageEventRepository.sumTotalProfitByDateRange(prevStartDateTime, prevEndDateTime);
+        AnalyticsQueryEngine.Result result = analyticsQueryEngine.compute(
+            response, bucket, startDateTime, endDateTime, prevStartDateTime, prevEndDateTime, customerId, userId, vendor, topN);
+        AnalyticsQueryEngine.Totals previous = result.getPrevious();
+
+        if (response.getTotalRevenue() != null && response.getTotalRevenue().compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal profitMargin = response.getTotalProfit()
+                .divide(response.getTotalRevenue(), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
+            response.setProfitMargin(profitMargin);
         }
 
+        Long prevEvents = previous.getEvents();
+        Long prevTokens = previous.getTokens();
+        BigDecimal prevCost = previous.getCost();
+        BigDecimal prevRevenue = previous.getRevenue();
+        BigDecimal prevProfit = previous.getProfit();
+
         AnalyticsResponse.GrowthMetrics growthMetrics = new AnalyticsResponse.GrowthMetrics();
         if (prevEvents != null && prevEvents > 0) {
             BigDecimal eventsGrowth = BigDecimal.valueOf(response.getTotalEvents() - prevEvents)
@@ -277,9 +395,13 @@ public class UsageEventService {
             efficiency.setRevenuePerToken(response.getTotalRevenue().doubleValue() / response.getTotalTokens());
             efficiency.setProfitPerToken(response.getTotalProfit().doubleValue() / response.getTotalTokens());
         }
+        efficiency.setTokensPerEvent(result.getDistributions().getTokens());
+        efficiency.setCostPerEventPercentiles(result.getDistributions().getCost());
+        efficiency.setAudioMinutesPerEvent(result.getDistributions().getAudioMinutes());
+        efficiency.setPercentileRelativeAccuracy(result.getDistributions().getRelativeAccuracy());
         response.setEfficiencyMetrics(efficiency);
 
-        List<AnalyticsResponse.TimeSeriesData> ts = response.getTimeSeriesData();
+        List<AnalyticsResponse.TimeSeriesData> ts = result.getDailySeries();
         Map<String, Double> weeklyPattern = new HashMap<>();
         Map<String, Double> monthlyPattern = new HashMap<>();
         Map<String, List<Long>> weekDayEvents = new HashMap<>();
@@ -305,77 +427,27 @@ public class UsageEventService {
         seasonality.setMonthlyPattern(monthlyPattern);
         response.setSeasonality(seasonality);
 
-        List<AnalyticsResponse.Anomaly> anomalies = new ArrayList<>();
-        double avgEvents = ts.stream().mapToLong(AnalyticsResponse.TimeSeriesData::getEvents).average().orElse(0);
-        for (AnalyticsResponse.TimeSeriesData d : ts) {
-            if (avgEvents > 0) {
-                if (d.getEvents() > avgEvents * 2) {
-                    AnalyticsResponse.Anomaly anomaly = new AnalyticsResponse.Anomaly();
-                    anomaly.setDate(d.getDate());
-                    anomaly.setType("spike");
-                    anomaly.setMetric("events");
-                    anomaly.setDescription("Events spike: " + d.getEvents() + " (avg: " + (long)avgEvents + ")");
-                    anomalies.add(anomaly);
-                } else if (d.getEvents() < avgEvents * 0.5) {
-                    AnalyticsResponse.Anomaly anomaly = new AnalyticsResponse.Anomaly();
-                    anomaly.setDate(d.getDate());
-                    anomaly.setType("drop");
-                    anomaly.setMetric("events");
-                    anomaly.setDescription("Events drop: " + d.getEvents() + " (avg: " + (long)avgEvents + ")");
-                    anomalies.add(anomaly);
-                }
-            }
-        }
-        response.setAnomalies(anomalies);
+        response.setAnomalies(usageAnomalyService.find(startDate, endDate, customerId, userId));
 
         return response;
     }
 
-    private Customer getOrCreateCustomer(UsageEventRequest request) {
-        return customerRepository.findByCustomerId(request.getCustomerId())
-            .orElseGet(() -> {
-                if (request.getCustomerDetails() != null) {
-                    Customer customer = new Customer(request.getCustomerId(), 
-                                                   request.getCustomerDetails().getOrganizationName(),
-                                                   request.getCustomerDetails().getContactEmail());
-                    customer.setContactPhone(request.getCustomerDetails().getContactPhone());
-                    customer.setAddress(request.getCustomerDetails().getAddress());
-                    return customerRepository.save(customer);
-                } else {
-                    throw new RuntimeException("Customer not found and no customer details provided");
-                }
-            });
-    }
-
-    private User getOrCreateUser(UsageEventRequest request, Customer customer) {
-        return userRepository.findByUserId(request.getUserId())
-            .orElseGet(() -> {
-                if (request.getUserDetails() != null) {
-                    User user = new User(request.getUserId(), 
-                                       request.getUserDetails().getFirstName(),
-                                       request.getUserDetails().getLastName(),
-                                       request.getUserDetails().getEmail(),
-                                       passwordEncoder.encode("defaultPassword123"),
-                                       customer);
-                    user.setDepartment(request.getUserDetails().getDepartment());
-                    user.setRole(request.getUserDetails().getRole());
-                    return userRepository.save(user);
-                } else {
-                    throw new RuntimeException("User not found and no user details provided");
-                }
-            });
+    @Transactional(readOnly = true)
+    public Set<String> findExistingEventIds(Collection<String> eventIds) {
+        return new HashSet<>(usageEventRepository.findExistingEventIds(eventIds));
     }
 
-    private String generateEventId() {
+    public String generateEventId() {
         return "evt_" + System.currentTimeMillis() + "_" + UUID.randomUUID().toString().substring(0, 8);
     }
 
-    private UsageEventResponse convertToResponse(UsageEvent event) {
+    private UsageEventResponse convertToResponse(UsageEvent event, String customerId, String userId) {
         UsageEventResponse response = new UsageEventResponse(
-            event.getEventId(), event.getCustomer().getCustomerId(), event.getUser().getUserId(),
+            event.getEventId(), customerId, userId,
             event.getVendor(), event.getModel(), event.getApiType(), event.getTimestamp()
         );
 
+        response.setId(event.getId());
         response.setRegion(event.getRegion());
         response.setInputTokens(event.getInputTokens());
         response.setOutputTokens(event.getOutputTokens());
@@ -391,6 +463,7 @@ public class UsageEventService {
         response.setRevenue(event.getRevenue());
         response.setProfit(event.getProfit());
         response.setCurrency(event.getCurrency());
+        response.setPricingVersion(event.getPricingVersion());
         response.setRequestId(event.getRequestId());
         response.setSessionId(event.getSessionId());
         response.setEndpoint(event.getEndpoint());
@@ -401,103 +474,4 @@ public class UsageEventService {
 
         return response;
     }
-
-    private Map<String, Long> convertToMap(List<Object[]> results) {
-        if (results == null || results.isEmpty()) {
-            return new HashMap<>();
-        }
-        return results.stream()
-            .filter(row -> row != null && row.length >= 2 && row[0] != null && row[1] != null)
-            .collect(Collectors.toMap(
-                row -> (String) row[0],
-                row -> (Long) row[1]
-            ));
-    }
-
-    private Map<String, BigDecimal> convertToBigDecimalMap(List<Object[]> results) {
-        if (results == null || results.isEmpty()) {
-            return new HashMap<>();
-        }
-        return results.stream()
-            .filter(row -> row != null && row.length >= 2 && row[0] != null && row[1] != null)
-            .collect(Collectors.toMap(
-                row -> (String) row[0],
-                row -> (BigDecimal) row[1]
-            ));
-    }
-
-    private List<AnalyticsResponse.TimeSeriesData> convertToTimeSeriesData(List<Object[]> results) {
-        if (results == null || results.isEmpty()) {
-            return new ArrayList<>();
-        }
-        return results.stream()
-            .filter(row -> row != null && row.length >= 6)
-            .map(row -> {
-                LocalDate date;
-                if (row[0] instanceof java.sql.Date) {
-                    date = ((java.sql.Date) row[0]).toLocalDate();
-                } else if (row[0] instanceof java.sql.Timestamp) {
-                    date = ((java.sql.Timestamp) row[0]).toLocalDateTime().toLocalDate();
-                } else {
-                    date = (LocalDate) row[0];
-                }
-                
-                AnalyticsResponse.TimeSeriesData data = new AnalyticsResponse.TimeSeriesData(date);
-                data.setEvents(row[1] != null ? (Long) row[1] : 0L);
-                data.setTokens(row[2] != null ? (Long) row[2] : 0L);
-                data.setCost(row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO);
-                data.setRevenue(row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO);
-                data.setProfit(row[5] != null ? (BigDecimal) row[5] : BigDecimal.ZERO);
-                return data;
-            })
-            .collect(Collectors.toList());
-    }
-
-    private List<AnalyticsResponse.CustomerMetrics> convertToCustomerMetrics(List<Object[]> results) {
-        if (results == null || results.isEmpty()) {
-            return new ArrayList<>();
-        }
-        return results.stream()
-            .filter(row -> row != null && row.length >= 7)
-            .map(row -> {
-                AnalyticsResponse.CustomerMetrics metrics = new AnalyticsResponse.CustomerMetrics(
-                    (String) row[0], (String) row[1]
-                );
-                metrics.setEvents(row[2] != null ? (Long) row[2] : 0L);
-                metrics.setTokens(row[3] != null ? (Long) row[3] : 0L);
-                metrics.setCost(row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO);
-                metrics.setRevenue(row[5] != null ? (BigDecimal) row[5] : BigDecimal.ZERO);
-                metrics.setProfit(row[6] != null ? (BigDecimal) row[6] : BigDecimal.ZERO);
-                
-                if (metrics.getRevenue() != null && metrics.getRevenue().compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal profitMargin = metrics.getProfit()
-                        .divide(metrics.getRevenue(), 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100));
-                    metrics.setProfitMargin(profitMargin);
-                }
-                
-                return metrics;
-            })
-            .collect(Collectors.toList());
-    }
-
-    private List<AnalyticsResponse.UserMetrics> convertToUserMetrics(List<Object[]> results) {
-        if (results == null || results.isEmpty()) {
-            return new ArrayList<>();
-        }
-        return results.stream()
-            .filter(row -> row != null && row.length >= 10)
-            .map(row -> {
-                AnalyticsResponse.UserMetrics metrics = new AnalyticsResponse.UserMetrics(
-                    (String) row[0], (String) row[1], (String) row[2], (String) row[4]
-                );
-                metrics.setEvents(row[5] != null ? (Long) row[5] : 0L);
-                metrics.setTokens(row[6] != null ? (Long) row[6] : 0L);
-                metrics.setCost(row[7] != null ? (BigDecimal) row[7] : BigDecimal.ZERO);
-                metrics.setRevenue(row[8] != null ? (BigDecimal) row[8] : BigDecimal.ZERO);
-                metrics.setProfit(row[9] != null ? (BigDecimal) row[9] : BigDecimal.ZERO);
-                return metrics;
-            })
-            .collect(Collectors.toList());
-    }
 }
@@ -0,0 +1,353 @@
+package com.llmtracker.service;
+
+import com.llmtracker.dto.AnalyticsResponse;
+import com.llmtracker.entity.UsageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory cost rankings of customers and users for the current day and the current month, so
+ * dashboards polling those ranges rank without scanning. The boards are loaded from
+ * {@code usage_rollup_daily} at startup and at every day change, and ingest adds to them when its
+ * transaction commits. An event committed while a board is being loaded can be counted twice, so
+ * the boards are reloaded every {@code analytics.leaderboard.resync-interval-ms}.
+ */
+@Component
+public class UsageLeaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(UsageLeaderboard.class);
+
+    private static final String LOAD =
+        "SELECT customer_id, user_id, SUM(events) AS events, SUM(tokens) AS tokens, SUM(cost) AS cost, " +
+        "SUM(revenue) AS revenue, SUM(profit) AS profit FROM " + UsageRollupService.DAILY_TABLE + " " +
+        "WHERE bucket BETWEEN :from AND :to GROUP BY customer_id, user_id";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${analytics.leaderboard.enabled:false}")
+    private boolean enabled;
+
+    private Board day;
+    private Board month;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        resync();
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.leaderboard.resync-interval-ms:300000}",
+               initialDelayString = "${analytics.leaderboard.resync-interval-ms:300000}")
+    public void resync() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reload(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.error("Loading the usage leaderboard failed", e);
+        }
+    }
+
+    /**
+     * Adds the events to the boards once the surrounding transaction commits. Must be called while
+     * the events are still attached, as only their ids and amounts are kept.
+     */
+    public void record(Collection<UsageEvent> events) {
+        if (!enabled || events.isEmpty()) {
+            return;
+        }
+        List<Increment> increments = new ArrayList<>(events.size());
+        for (UsageEvent event : events) {
+            increments.add(new Increment(event));
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(increments);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(increments);
+            }
+        });
+    }
+
+    /** Whether {@code [start, end]} is today, or the current month from its first day through today or later. */
+    public boolean covers(LocalDateTime start, LocalDateTime end) {
+        if (!enabled) {
+            return false;
+        }
+        LocalDate today = LocalDate.now();
+        if (!end.toLocalTime().equals(LocalTime.of(23, 59, 59)) || !start.toLocalTime().equals(LocalTime.MIDNIGHT)) {
+            return false;
+        }
+        LocalDate from = start.toLocalDate();
+        LocalDate to = end.toLocalDate();
+        if (from.equals(today) && to.equals(today)) {
+            return true;
+        }
+        return from.equals(today.withDayOfMonth(1)) && !to.isBefore(today)
+            && !to.isAfter(today.with(TemporalAdjusters.lastDayOfMonth()));
+    }
+
+    /**
+     * Fills the top customer and user lists of {@code response} for a range accepted by
+     * {@link #covers}. With a customer filter only that customer's users are ranked.
+     */
+    public void fill(AnalyticsResponse response, LocalDateTime start, LocalDateTime end, String customerId, int topN) {
+        Long customerRow = null;
+        if (customerId != null) {
+            List<Long> rows = jdbcTemplate.queryForList("SELECT id FROM customers WHERE customer_id = :customerId",
+                new MapSqlParameterSource("customerId", customerId), Long.class);
+            if (rows.isEmpty()) {
+                response.setTopCustomers(new ArrayList<>());
+                response.setTopUsers(new ArrayList<>());
+                return;
+            }
+            customerRow = rows.get(0);
+        }
+
+        List<Map.Entry<Long, Totals>> customers = new ArrayList<>();
+        List<Map.Entry<UserKey, Totals>> users = new ArrayList<>();
+        synchronized (this) {
+            LocalDate today = LocalDate.now();
+            if (day == null || !day.from.equals(today)) {
+                reload(today);
+            }
+            Board board = start.toLocalDate().equals(end.toLocalDate()) ? day : month;
+            if (customerRow == null) {
+                customers = top(board.customers, topN);
+            }
+            Long filterRow = customerRow;
+            Map<UserKey, Totals> candidates = new HashMap<>();
+            board.users.forEach((key, totals) -> {
+                if (filterRow == null || filterRow.equals(key.customerRow)) {
+                    candidates.put(key, totals);
+                }
+            });
+            users = top(candidates, topN);
+        }
+
+        Set<Long> customerRows = new HashSet<>();
+        Set<Long> userRows = new HashSet<>();
+        customers.forEach(entry -> customerRows.add(entry.getKey()));
+        users.forEach(entry -> {
+            customerRows.add(entry.getKey().customerRow);
+            userRows.add(entry.getKey().userRow);
+        });
+        Map<Long, String[]> customerNames = new HashMap<>();
+        Map<Long, String[]> userNames = new HashMap<>();
+        if (!customerRows.isEmpty()) {
+            jdbcTemplate.query("SELECT id, customer_id, organization_name FROM customers WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", customerRows), rs -> {
+                    customerNames.put(rs.getLong("id"), new String[] { rs.getString("customer_id"), rs.getString("organization_name") });
+                });
+        }
+        if (!userRows.isEmpty()) {
+            jdbcTemplate.query("SELECT id, user_id, first_name, last_name, email FROM users WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", userRows), rs -> {
+                    userNames.put(rs.getLong("id"), new String[] {
+                        rs.getString("user_id"), rs.getString("first_name") + " " + rs.getString("last_name"), rs.getString("email") });
+                });
+        }
+
+        List<AnalyticsResponse.CustomerMetrics> topCustomers = new ArrayList<>();
+        for (Map.Entry<Long, Totals> entry : customers) {
+            String[] names = customerNames.get(entry.getKey());
+            if (names == null) {
+                continue;
+            }
+            AnalyticsResponse.CustomerMetrics metrics = new AnalyticsResponse.CustomerMetrics(names[0], names[1]);
+            Totals totals = entry.getValue();
+            metrics.setEvents(totals.events);
+            metrics.setTokens(totals.tokens);
+            metrics.setCost(totals.cost);
+            metrics.setRevenue(totals.revenue);
+            metrics.setProfit(totals.profit);
+            if (totals.revenue.compareTo(BigDecimal.ZERO) > 0) {
+                metrics.setProfitMargin(totals.profit
+                    .divide(totals.revenue, 4, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(100)));
+            }
+            topCustomers.add(metrics);
+        }
+        List<AnalyticsResponse.UserMetrics> topUsers = new ArrayList<>();
+        for (Map.Entry<UserKey, Totals> entry : users) {
+            String[] names = userNames.get(entry.getKey().userRow);
+            String[] customer = customerNames.get(entry.getKey().customerRow);
+            if (names == null || customer == null) {
+                continue;
+            }
+            AnalyticsResponse.UserMetrics metrics = new AnalyticsResponse.UserMetrics(names[0], names[1], names[2], customer[0]);
+            Totals totals = entry.getValue();
+            metrics.setEvents(totals.events);
+            metrics.setTokens(totals.tokens);
+            metrics.setCost(totals.cost);
+            metrics.setRevenue(totals.revenue);
+            metrics.setProfit(totals.profit);
+            topUsers.add(metrics);
+        }
+        response.setTopCustomers(topCustomers);
+        response.setTopUsers(topUsers);
+    }
+
+    private synchronized void apply(List<Increment> increments) {
+        if (day == null) {
+            return;
+        }
+        for (Increment increment : increments) {
+            day.add(increment);
+            month.add(increment);
+        }
+    }
+
+    private synchronized void reload(LocalDate today) {
+        day = load(today, today);
+        month = load(today.withDayOfMonth(1), today.with(TemporalAdjusters.lastDayOfMonth()));
+    }
+
+    private Board load(LocalDate from, LocalDate to) {
+        Board board = new Board(from, to);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", Timestamp.valueOf(from.atStartOfDay()))
+            .addValue("to", Timestamp.valueOf(to.atStartOfDay()));
+        jdbcTemplate.query(LOAD, params, rs -> {
+            Totals totals = new Totals();
+            totals.events = rs.getLong("events");
+            totals.tokens = rs.getLong("tokens");
+            totals.cost = rs.getBigDecimal("cost");
+            totals.revenue = rs.getBigDecimal("revenue");
+            totals.profit = rs.getBigDecimal("profit");
+            board.put(rs.getLong("customer_id"), rs.getLong("user_id"), totals);
+        });
+        return board;
+    }
+
+    private static <K> List<Map.Entry<K, Totals>> top(Map<K, Totals> totals, int topN) {
+        return totals.entrySet().stream()
+            .sorted(Comparator.comparing((Map.Entry<K, Totals> entry) -> entry.getValue().cost).reversed())
+            .limit(topN)
+            .map(entry -> Map.entry(entry.getKey(), entry.getValue().copy()))
+            .collect(Collectors.toList());
+    }
+
+    private static final class Board {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final Map<Long, Totals> customers = new HashMap<>();
+        private final Map<UserKey, Totals> users = new HashMap<>();
+
+        private Board(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private void put(Long customerRow, Long userRow, Totals totals) {
+            customers.computeIfAbsent(customerRow, k -> new Totals()).add(totals);
+            users.computeIfAbsent(new UserKey(userRow, customerRow), k -> new Totals()).add(totals);
+        }
+
+        private void add(Increment increment) {
+            if (increment.day.isBefore(from) || increment.day.isAfter(to)) {
+                return;
+            }
+            put(increment.customerRow, increment.userRow, increment.totals);
+        }
+    }
+
+    private static final class Increment {
+        private final LocalDate day;
+        private final Long customerRow;
+        private final Long userRow;
+        private final Totals totals = new Totals();
+
+        private Increment(UsageEvent event) {
+            this.day = event.getTimestamp().toLocalDate();
+            this.customerRow = event.getCustomer().getId();
+            this.userRow = event.getUser().getId();
+            totals.events = 1;
+            totals.tokens = event.getTotalTokens() != null ? event.getTotalTokens() : 0;
+            totals.cost = scaled(event.getTotalCost());
+            totals.revenue = scaled(event.getRevenue());
+            totals.profit = scaled(event.getProfit());
+        }
+
+        private static BigDecimal scaled(BigDecimal amount) {
+            return amount != null ? amount.setScale(6, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+        }
+    }
+
+    private static final class UserKey {
+        private final Long userRow;
+        private final Long customerRow;
+
+        private UserKey(Long userRow, Long customerRow) {
+            this.userRow = userRow;
+            this.customerRow = customerRow;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof UserKey)) return false;
+            UserKey other = (UserKey) o;
+            return userRow.equals(other.userRow) && customerRow.equals(other.customerRow);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userRow, customerRow);
+        }
+    }
+
+    private static final class Totals {
+        private long events;
+        private long tokens;
+        private BigDecimal cost = BigDecimal.ZERO;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal profit = BigDecimal.ZERO;
+
+        private void add(Totals other) {
+            events += other.events;
+            tokens += other.tokens;
+            cost = cost.add(other.cost);
+            revenue = revenue.add(other.revenue);
+            profit = profit.add(other.profit);
+        }
+
+        private Totals copy() {
+            Totals copy = new Totals();
+            copy.add(this);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.llmtracker.service;
+
+import com.llmtracker.dto.AnalyticsResponse;
+import com.llmtracker.entity.UsageEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Maintains and reads the per-event quantile sketches of {@code usage_quantiles_daily}. Ingest
+ * merges a batch's sketches into the stored rows under row locks taken in key order, the same way
+ * {@link UsageSketchService} does; reads merge the daily rows of a range in memory, so percentiles
+ * over any range cost one row per customer, day and model rather than one per event.
+ */
+@Service
+public class UsageQuantileService {
+
+    public static final String TABLE = "usage_quantiles_daily";
+
+    private static final String INSERT =
+        "INSERT INTO " + TABLE + " (day, customer_id, vendor, model, tokens, cost, audio_minutes) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (customer_id, day, vendor, model) DO NOTHING";
+
+    private static final String LOCK =
+        "SELECT customer_id, day, vendor, model, tokens, cost, audio_minutes FROM " + TABLE + " " +
+        "WHERE (customer_id, day, vendor, model) IN (SELECT * FROM unnest(?::bigint[], ?::date[], ?::varchar[], ?::varchar[])) " +
+        "ORDER BY customer_id, day, vendor COLLATE \"C\", model COLLATE \"C\" FOR UPDATE";
+
+    private static final String UPDATE =
+        "UPDATE " + TABLE + " SET tokens = ?, cost = ?, audio_minutes = ? WHERE customer_id = ? AND day = ? AND vendor = ? AND model = ?";
+
+    /** p50, p90 and p99 of tokens, cost and audio minutes per event over a range. */
+    public static class Distributions {
+        private final AnalyticsResponse.Percentiles tokens;
+        private final AnalyticsResponse.Percentiles cost;
+        private final AnalyticsResponse.Percentiles audioMinutes;
+        private final double relativeAccuracy;
+
+        public Distributions(AnalyticsResponse.Percentiles tokens, AnalyticsResponse.Percentiles cost,
+                             AnalyticsResponse.Percentiles audioMinutes, double relativeAccuracy) {
+            this.tokens = tokens;
+            this.cost = cost;
+            this.audioMinutes = audioMinutes;
+            this.relativeAccuracy = relativeAccuracy;
+        }
+
+        public AnalyticsResponse.Percentiles getTokens() { return tokens; }
+        public AnalyticsResponse.Percentiles getCost() { return cost; }
+        public AnalyticsResponse.Percentiles getAudioMinutes() { return audioMinutes; }
+
+        /** 0 when the percentiles are exact (user filter). */
+        public double getRelativeAccuracy() { return relativeAccuracy; }
+    }
+
+    static final class Key implements Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator
+            .comparing((Key k) -> k.customerId)
+            .thenComparing(k -> k.day)
+            .thenComparing(k -> k.vendor)
+            .thenComparing(k -> k.model);
+
+        private final Long customerId;
+        private final LocalDate day;
+        private final String vendor;
+        private final String model;
+
+        Key(Long customerId, LocalDate day, String vendor, String model) {
+            this.customerId = customerId;
+            this.day = day;
+            this.vendor = vendor;
+            this.model = model;
+        }
+
+        Object[] row(Sketches sketches) {
+            return new Object[] { Date.valueOf(day), customerId, vendor, model,
+                                  sketches.tokens.toBytes(), sketches.cost.toBytes(), sketches.audioMinutes.toBytes() };
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return customerId.equals(other.customerId) && day.equals(other.day)
+                && vendor.equals(other.vendor) && model.equals(other.model);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(customerId, day, vendor, model);
+        }
+    }
+
+    static final class Sketches {
+        private final QuantileSketch tokens = new QuantileSketch();
+        private final QuantileSketch cost = new QuantileSketch();
+        private final QuantileSketch audioMinutes = new QuantileSketch();
+
+        private void merge(Sketches other) {
+            tokens.merge(other.tokens);
+            cost.merge(other.cost);
+            audioMinutes.merge(other.audioMinutes);
+        }
+
+        private void merge(byte[] tokens, byte[] cost, byte[] audioMinutes) {
+            this.tokens.merge(tokens);
+            this.cost.merge(cost);
+            this.audioMinutes.merge(audioMinutes);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /** Adds one event's tokens, cost and audio minutes, whichever are set, to the sketches of its row. */
+    static void add(Map<Key, Sketches> sketches, LocalDate day, Long customerId, String vendor, String model,
+                           Long tokens, BigDecimal cost, BigDecimal audioMinutes) {
+        Sketches entry = sketches.computeIfAbsent(new Key(customerId, day, vendor, model), k -> new Sketches());
+        if (tokens != null) {
+            entry.tokens.offer(tokens);
+        }
+        if (cost != null) {
+            entry.cost.offer(cost.doubleValue());
+        }
+        if (audioMinutes != null) {
+            entry.audioMinutes.offer(audioMinutes.doubleValue());
+        }
+    }
+
+    /** Merges the events into the stored sketches; called in the transaction that inserts them. */
+    public void record(Collection<UsageEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Map<Key, Sketches> batch = new TreeMap<>();
+        for (UsageEvent event : events) {
+            add(batch, event.getTimestamp().toLocalDate(), event.getCustomer().getId(), event.getVendor(), event.getModel(),
+                event.getTotalTokens(), event.getTotalCost(), event.getAudioMinutes());
+        }
+
+        List<Object[]> inserts = new ArrayList<>(batch.size());
+        Sketches empty = new Sketches();
+        batch.keySet().forEach(key -> inserts.add(key.row(empty)));
+        jdbcTemplate.batchUpdate(INSERT, inserts);
+
+        List<Object[]> updates = new ArrayList<>(batch.size());
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK);
+            List<Key> keys = new ArrayList<>(batch.keySet());
+            ps.setArray(1, con.createArrayOf("bigint", keys.stream().map(k -> k.customerId).toArray()));
+            ps.setArray(2, con.createArrayOf("date", keys.stream().map(k -> Date.valueOf(k.day)).toArray()));
+            ps.setArray(3, con.createArrayOf("varchar", keys.stream().map(k -> k.vendor).toArray()));
+            ps.setArray(4, con.createArrayOf("varchar", keys.stream().map(k -> k.model).toArray()));
+            return ps;
+        }, rs -> {
+            Key key = new Key(rs.getLong("customer_id"), rs.getDate("day").toLocalDate(), rs.getString("vendor"), rs.getString("model"));
+            Sketches stored = new Sketches();
+            stored.merge(rs.getBytes("tokens"), rs.getBytes("cost"), rs.getBytes("audio_minutes"));
+            stored.merge(batch.get(key));
+            updates.add(new Object[] { stored.tokens.toBytes(), stored.cost.toBytes(), stored.audioMinutes.toBytes(),
+                                       key.customerId, Date.valueOf(key.day), key.vendor, key.model });
+        });
+        jdbcTemplate.batchUpdate(UPDATE, updates);
+    }
+
+    /** Percentiles of the events on the days of {@code [from, to]}, optionally for one customer and vendor. */
+    public Distributions read(LocalDate from, LocalDate to, String customerId, String vendor) {
+        String sql = "SELECT tokens, cost, audio_minutes FROM " + TABLE + " WHERE day BETWEEN :from AND :to ";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", Date.valueOf(from))
+            .addValue("to", Date.valueOf(to));
+        if (customerId != null) {
+            sql += "AND customer_id = (SELECT id FROM customers WHERE customer_id = :customerId) ";
+            params.addValue("customerId", customerId);
+        }
+        if (vendor != null) {
+            sql += "AND vendor = :vendor ";
+            params.addValue("vendor", vendor);
+        }
+
+        Sketches total = new Sketches();
+        namedJdbcTemplate.query(sql, params, rs -> {
+            total.merge(rs.getBytes("tokens"), rs.getBytes("cost"), rs.getBytes("audio_minutes"));
+        });
+        return new Distributions(percentiles(total.tokens), percentiles(total.cost), percentiles(total.audioMinutes),
+                                 QuantileSketch.RELATIVE_ACCURACY);
+    }
+
+    private static AnalyticsResponse.Percentiles percentiles(QuantileSketch sketch) {
+        return new AnalyticsResponse.Percentiles(sketch.quantile(0.5), sketch.quantile(0.9), sketch.quantile(0.99));
+    }
+}
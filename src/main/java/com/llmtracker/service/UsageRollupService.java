@@ -0,0 +1,143 @@
+package com.llmtracker.service;
+
+import com.llmtracker.entity.UsageEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Maintains {@code usage_rollup_hourly} and {@code usage_rollup_daily} as events are written.
+ * A batch is first summed in memory per bucket, then each bucket is upserted once, in key order so
+ * concurrent writers touching the same buckets lock them in the same order. Callers invoke it in
+ * the transaction that inserts the events, so the rollups commit or roll back with them.
+ */
+@Service
+public class UsageRollupService {
+
+    public static final String HOURLY_TABLE = "usage_rollup_hourly";
+    public static final String DAILY_TABLE = "usage_rollup_daily";
+
+    private static final int AMOUNT_SCALE = 6;
+
+    private static final String UPSERT =
+        "INSERT INTO %1$s (bucket, customer_id, user_id, vendor, model, api_type, region, endpoint, " +
+        "events, tokens, cost, revenue, profit) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (bucket, customer_id, user_id, vendor, model, api_type, region, endpoint) DO UPDATE SET " +
+        "events = %1$s.events + EXCLUDED.events, tokens = %1$s.tokens + EXCLUDED.tokens, " +
+        "cost = %1$s.cost + EXCLUDED.cost, revenue = %1$s.revenue + EXCLUDED.revenue, " +
+        "profit = %1$s.profit + EXCLUDED.profit";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void record(Collection<UsageEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        upsert(HOURLY_TABLE, aggregate(events, ChronoUnit.HOURS));
+        upsert(DAILY_TABLE, aggregate(events, ChronoUnit.DAYS));
+    }
+
+    private static Map<Key, Totals> aggregate(Collection<UsageEvent> events, ChronoUnit unit) {
+        Map<Key, Totals> buckets = new TreeMap<>();
+        for (UsageEvent event : events) {
+            Key key = new Key(event.getTimestamp().truncatedTo(unit), event.getCustomer().getId(), event.getUser().getId(),
+                              event.getVendor(), event.getModel(), event.getApiType(),
+                              Objects.toString(event.getRegion(), ""), Objects.toString(event.getEndpoint(), ""));
+            buckets.computeIfAbsent(key, k -> new Totals()).add(event);
+        }
+        return buckets;
+    }
+
+    private void upsert(String table, Map<Key, Totals> buckets) {
+        List<Object[]> rows = new ArrayList<>(buckets.size());
+        for (Map.Entry<Key, Totals> entry : buckets.entrySet()) {
+            Key key = entry.getKey();
+            Totals totals = entry.getValue();
+            rows.add(new Object[] {
+                Timestamp.valueOf(key.bucket), key.customerId, key.userId, key.vendor, key.model, key.apiType,
+                key.region, key.endpoint, totals.events, totals.tokens, totals.cost, totals.revenue, totals.profit
+            });
+        }
+        jdbcTemplate.batchUpdate(String.format(UPSERT, table), rows);
+    }
+
+    private static final class Key implements Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator
+            .comparing((Key k) -> k.bucket)
+            .thenComparing(k -> k.customerId)
+            .thenComparing(k -> k.userId)
+            .thenComparing(k -> k.vendor)
+            .thenComparing(k -> k.model)
+            .thenComparing(k -> k.apiType)
+            .thenComparing(k -> k.region)
+            .thenComparing(k -> k.endpoint);
+
+        private final LocalDateTime bucket;
+        private final Long customerId;
+        private final Long userId;
+        private final String vendor;
+        private final String model;
+        private final String apiType;
+        private final String region;
+        private final String endpoint;
+
+        private Key(LocalDateTime bucket, Long customerId, Long userId, String vendor, String model, String apiType,
+                    String region, String endpoint) {
+            this.bucket = bucket;
+            this.customerId = customerId;
+            this.userId = userId;
+            this.vendor = vendor;
+            this.model = model;
+            this.apiType = apiType;
+            this.region = region;
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private static final class Totals {
+        private long events;
+        private long tokens;
+        private BigDecimal cost = BigDecimal.ZERO;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal profit = BigDecimal.ZERO;
+
+        /**
+         * Amounts are rounded to the scale of the event columns first, as Postgres does when it
+         * stores them, so the bucket sums match sums over the stored events.
+         */
+        private void add(UsageEvent event) {
+            events++;
+            if (event.getTotalTokens() != null) {
+                tokens += event.getTotalTokens();
+            }
+            if (event.getTotalCost() != null) {
+                cost = cost.add(event.getTotalCost().setScale(AMOUNT_SCALE, RoundingMode.HALF_UP));
+            }
+            if (event.getRevenue() != null) {
+                revenue = revenue.add(event.getRevenue().setScale(AMOUNT_SCALE, RoundingMode.HALF_UP));
+            }
+            if (event.getProfit() != null) {
+                profit = profit.add(event.getProfit().setScale(AMOUNT_SCALE, RoundingMode.HALF_UP));
+            }
+        }
+    }
+}
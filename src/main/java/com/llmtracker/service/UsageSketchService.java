@@ -0,0 +1,253 @@
+package com.llmtracker.service;
+
+import com.llmtracker.dto.AnalyticsResponse;
+import com.llmtracker.entity.UsageEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Maintains and reads the distinct user and session sketches of {@code usage_sketches_daily}.
+ * Ingest merges a batch's sketches into the stored rows under row locks taken in key order, and
+ * only writes the rows whose registers changed, which after the first events of a day is rare
+ * for the user sketches. Reads merge the daily rows of a range in memory.
+ */
+@Service
+public class UsageSketchService {
+
+    public static final String TABLE = "usage_sketches_daily";
+
+    public static final String ALL = "all";
+    public static final String VENDOR = "vendor";
+    public static final String MODEL = "model";
+
+    private static final String INSERT =
+        "INSERT INTO " + TABLE + " (day, customer_id, dimension, value, users, sessions) VALUES (?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (customer_id, day, dimension, value) DO NOTHING";
+
+    private static final String LOCK =
+        "SELECT customer_id, day, dimension, value, users, sessions FROM " + TABLE + " " +
+        "WHERE (customer_id, day, dimension, value) IN (SELECT * FROM unnest(?::bigint[], ?::date[], ?::varchar[], ?::varchar[])) " +
+        "ORDER BY customer_id, day, dimension, value COLLATE \"C\" FOR UPDATE";
+
+    private static final String UPDATE =
+        "UPDATE " + TABLE + " SET users = ?, sessions = ? WHERE customer_id = ? AND day = ? AND dimension = ? AND value = ?";
+
+    /** Distinct counts of a range, as a whole and per time-series bucket. */
+    public static class Counts {
+        private final AnalyticsResponse.DistinctCounts totals;
+        private final Map<LocalDateTime, long[]> byBucket;
+
+        public Counts(AnalyticsResponse.DistinctCounts totals, Map<LocalDateTime, long[]> byBucket) {
+            this.totals = totals;
+            this.byBucket = byBucket;
+        }
+
+        public AnalyticsResponse.DistinctCounts getTotals() { return totals; }
+
+        /** Users and sessions keyed by bucket start; empty for hourly series. */
+        public Map<LocalDateTime, long[]> getByBucket() { return byBucket; }
+    }
+
+    static final class Key implements Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator
+            .comparing((Key k) -> k.customerId)
+            .thenComparing(k -> k.day)
+            .thenComparing(k -> k.dimension)
+            .thenComparing(k -> k.value);
+
+        private final Long customerId;
+        private final LocalDate day;
+        private final String dimension;
+        private final String value;
+
+        Key(Long customerId, LocalDate day, String dimension, String value) {
+            this.customerId = customerId;
+            this.day = day;
+            this.dimension = dimension;
+            this.value = value;
+        }
+
+        Object[] row(Sketches sketches) {
+            return new Object[] { Date.valueOf(day), customerId, dimension, value, sketches.users.toBytes(), sketches.sessions.toBytes() };
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return customerId.equals(other.customerId) && day.equals(other.day)
+                && dimension.equals(other.dimension) && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(customerId, day, dimension, value);
+        }
+    }
+
+    static final class Sketches {
+        private final HyperLogLog users;
+        private final HyperLogLog sessions;
+
+        Sketches() {
+            this.users = new HyperLogLog();
+            this.sessions = new HyperLogLog();
+        }
+
+        private boolean merge(Sketches other) {
+            boolean users = this.users.merge(other.users);
+            boolean sessions = this.sessions.merge(other.sessions);
+            return users || sessions;
+        }
+
+        private void merge(byte[] users, byte[] sessions) {
+            this.users.merge(users);
+            this.sessions.merge(sessions);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /** Adds one event to the sketches of its day, customer, vendor and model. */
+    static void add(Map<Key, Sketches> sketches, LocalDate day, Long customerId, Long userId,
+                           String vendor, String model, String sessionId) {
+        for (Key key : new Key[] { new Key(customerId, day, ALL, ""), new Key(customerId, day, VENDOR, vendor),
+                                   new Key(customerId, day, MODEL, model) }) {
+            Sketches entry = sketches.computeIfAbsent(key, k -> new Sketches());
+            entry.users.offer(userId);
+            if (sessionId != null) {
+                entry.sessions.offer(sessionId);
+            }
+        }
+    }
+
+    /** Merges the events into the stored sketches; called in the transaction that inserts them. */
+    public void record(Collection<UsageEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Map<Key, Sketches> batch = new TreeMap<>();
+        for (UsageEvent event : events) {
+            add(batch, event.getTimestamp().toLocalDate(), event.getCustomer().getId(), event.getUser().getId(),
+                event.getVendor(), event.getModel(), event.getSessionId());
+        }
+
+        List<Object[]> inserts = new ArrayList<>(batch.size());
+        Sketches empty = new Sketches();
+        batch.keySet().forEach(key -> inserts.add(key.row(empty)));
+        jdbcTemplate.batchUpdate(INSERT, inserts);
+
+        List<Object[]> updates = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK);
+            List<Key> keys = new ArrayList<>(batch.keySet());
+            ps.setArray(1, con.createArrayOf("bigint", keys.stream().map(k -> k.customerId).toArray()));
+            ps.setArray(2, con.createArrayOf("date", keys.stream().map(k -> Date.valueOf(k.day)).toArray()));
+            ps.setArray(3, con.createArrayOf("varchar", keys.stream().map(k -> k.dimension).toArray()));
+            ps.setArray(4, con.createArrayOf("varchar", keys.stream().map(k -> k.value).toArray()));
+            return ps;
+        }, rs -> {
+            Key key = new Key(rs.getLong("customer_id"), rs.getDate("day").toLocalDate(), rs.getString("dimension"), rs.getString("value"));
+            Sketches stored = new Sketches();
+            stored.merge(rs.getBytes("users"), rs.getBytes("sessions"));
+            if (stored.merge(batch.get(key))) {
+                updates.add(new Object[] { stored.users.toBytes(), stored.sessions.toBytes(), key.customerId,
+                                           Date.valueOf(key.day), key.dimension, key.value });
+            }
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE, updates);
+        }
+    }
+
+    /**
+     * Estimates distinct users and sessions over the days of {@code [from, to]}, overall, per vendor,
+     * per model and per {@code bucket} (except hourly, which the daily sketches cannot split). With a
+     * vendor the vendor's rows stand in for the totals; per-model counts still cover every model and
+     * are narrowed by the caller.
+     */
+    public Counts read(LocalDate from, LocalDate to, String customerId, String vendor, TimeBucket bucket) {
+        String sql = "SELECT day, dimension, value, users, sessions FROM " + TABLE + " WHERE day BETWEEN :from AND :to ";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", Date.valueOf(from))
+            .addValue("to", Date.valueOf(to));
+        if (customerId != null) {
+            sql += "AND customer_id = (SELECT id FROM customers WHERE customer_id = :customerId) ";
+            params.addValue("customerId", customerId);
+        }
+        String totalsDimension = vendor != null ? VENDOR : ALL;
+        if (vendor != null) {
+            sql += "AND dimension IN ('vendor', 'model') AND (dimension = 'model' OR value = :vendor) ";
+            params.addValue("vendor", vendor);
+        }
+
+        Sketches total = new Sketches();
+        Map<String, Sketches> byVendor = new HashMap<>();
+        Map<String, Sketches> byModel = new HashMap<>();
+        Map<LocalDateTime, Sketches> byBucket = new TreeMap<>();
+        namedJdbcTemplate.query(sql, params, rs -> {
+            String dimension = rs.getString("dimension");
+            byte[] users = rs.getBytes("users");
+            byte[] sessions = rs.getBytes("sessions");
+            if (dimension.equals(totalsDimension)) {
+                total.merge(users, sessions);
+                if (bucket != TimeBucket.HOURLY) {
+                    byBucket.computeIfAbsent(bucket.truncate(rs.getDate("day").toLocalDate().atStartOfDay()), k -> new Sketches())
+                        .merge(users, sessions);
+                }
+            }
+            if (dimension.equals(VENDOR)) {
+                byVendor.computeIfAbsent(rs.getString("value"), k -> new Sketches()).merge(users, sessions);
+            } else if (dimension.equals(MODEL)) {
+                byModel.computeIfAbsent(rs.getString("value"), k -> new Sketches()).merge(users, sessions);
+            }
+        });
+
+        AnalyticsResponse.DistinctCounts totals = new AnalyticsResponse.DistinctCounts();
+        totals.setActiveUsers(total.users.estimate());
+        totals.setSessions(total.sessions.estimate());
+        totals.setActiveUsersByVendor(new HashMap<>());
+        totals.setSessionsByVendor(new HashMap<>());
+        byVendor.forEach((value, sketches) -> {
+            totals.getActiveUsersByVendor().put(value, sketches.users.estimate());
+            totals.getSessionsByVendor().put(value, sketches.sessions.estimate());
+        });
+        totals.setActiveUsersByModel(new HashMap<>());
+        totals.setSessionsByModel(new HashMap<>());
+        byModel.forEach((value, sketches) -> {
+            totals.getActiveUsersByModel().put(value, sketches.users.estimate());
+            totals.getSessionsByModel().put(value, sketches.sessions.estimate());
+        });
+        totals.setRelativeStandardError(HyperLogLog.RELATIVE_STANDARD_ERROR);
+
+        Map<LocalDateTime, long[]> bucketCounts = new TreeMap<>();
+        byBucket.forEach((start, sketches) -> bucketCounts.put(start, new long[] { sketches.users.estimate(), sketches.sessions.estimate() }));
+        return new Counts(totals, bucketCounts);
+    }
+}
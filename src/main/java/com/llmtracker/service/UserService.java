@@ -22,6 +22,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private IngestEntityResolver entityResolver;
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -87,7 +90,9 @@ public class UserService {
                 user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
             }
 
-            return userRepository.save(user);
+            User updatedUser = userRepository.save(user);
+            entityResolver.evictUser(userId);
+            return updatedUser;
         }
         throw new RuntimeException("User not found with userId: " + userId);
     }
@@ -96,6 +101,7 @@ public class UserService {
         Optional<User> user = userRepository.findByUserId(userId);
         if (user.isPresent()) {
             userRepository.delete(user.get());
+            entityResolver.evictUser(userId);
         } else {
             throw new RuntimeException("User not found with userId: " + userId);
         }
@@ -0,0 +1,35 @@
+package com.llmtracker.service;
+
+import com.llmtracker.entity.VendorPricing;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Reloads the pricing catalog once a transaction that changed {@link VendorPricing} commits.
+ */
+public class VendorPricingChangeListener {
+
+    @Autowired
+    private ObjectProvider<PricingCatalogService> pricingCatalogService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(VendorPricing pricing) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pricingCatalogService.getObject().reloadAsync();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pricingCatalogService.getObject().reloadAsync();
+            }
+        });
+    }
+}
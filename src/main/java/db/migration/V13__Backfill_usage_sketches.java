@@ -0,0 +1,136 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds {@code usage_sketches_daily} from the events already stored, one day at a time. The
+ * sketches use the same hashing as ingest, which SQL cannot reproduce, so this migration is Java.
+ * The hashing and the sketch encoding are copied from {@code HyperLogLog} as of this version rather
+ * than called, so later changes to the application cannot change what this migration writes.
+ */
+public class V13__Backfill_usage_sketches extends BaseJavaMigration {
+
+    private static final String EVENTS =
+        "SELECT CAST(timestamp AS date) AS day, customer_id, user_id, vendor, model, session_id " +
+        "FROM usage_events ORDER BY timestamp";
+
+    private static final String INSERT =
+        "INSERT INTO usage_sketches_daily (day, customer_id, dimension, value, users, sessions) VALUES (?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (customer_id, day, dimension, value) DO NOTHING";
+
+    private static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement select = context.getConnection().createStatement();
+             PreparedStatement insert = context.getConnection().prepareStatement(INSERT)) {
+            select.setFetchSize(10000);
+            // (customer_id, dimension, value) -> {users, sessions} registers of the current day
+            Map<List<Object>, byte[][]> sketches = new LinkedHashMap<>();
+            LocalDate day = null;
+            try (ResultSet rs = select.executeQuery(EVENTS)) {
+                while (rs.next()) {
+                    LocalDate eventDay = rs.getDate("day").toLocalDate();
+                    if (!eventDay.equals(day)) {
+                        flush(insert, day, sketches);
+                        day = eventDay;
+                    }
+                    long customerId = rs.getLong("customer_id");
+                    long userId = rs.getLong("user_id");
+                    String sessionId = rs.getString("session_id");
+                    for (List<Object> key : List.of(List.<Object>of(customerId, "all", ""),
+                                                    List.<Object>of(customerId, "vendor", rs.getString("vendor")),
+                                                    List.<Object>of(customerId, "model", rs.getString("model")))) {
+                        byte[][] entry = sketches.computeIfAbsent(key, k -> new byte[][] { new byte[REGISTERS], new byte[REGISTERS] });
+                        offer(entry[0], mix(userId));
+                        if (sessionId != null) {
+                            offer(entry[1], mix(fnv1a(sessionId)));
+                        }
+                    }
+                }
+            }
+            flush(insert, day, sketches);
+        }
+    }
+
+    private static void flush(PreparedStatement insert, LocalDate day, Map<List<Object>, byte[][]> sketches)
+            throws SQLException {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<List<Object>, byte[][]> entry : sketches.entrySet()) {
+            insert.setDate(1, Date.valueOf(day));
+            insert.setLong(2, (Long) entry.getKey().get(0));
+            insert.setString(3, (String) entry.getKey().get(1));
+            insert.setString(4, (String) entry.getKey().get(2));
+            insert.setBytes(5, toBytes(entry.getValue()[0]));
+            insert.setBytes(6, toBytes(entry.getValue()[1]));
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        sketches.clear();
+    }
+
+    private static void offer(byte[] registers, long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /** Sparse ({@code index, value} pairs) while fewer than a third of the registers are set. */
+    private static byte[] toBytes(byte[] registers) {
+        int set = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                set++;
+            }
+        }
+        if (set * 3 >= REGISTERS) {
+            return ByteBuffer.allocate(1 + REGISTERS).put(DENSE).put(registers).array();
+        }
+        ByteBuffer sparse = ByteBuffer.allocate(1 + set * 3);
+        sparse.put(SPARSE);
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                sparse.putShort((short) i).put(registers[i]);
+            }
+        }
+        return sparse.array();
+    }
+}
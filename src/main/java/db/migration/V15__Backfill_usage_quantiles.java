@@ -0,0 +1,131 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds {@code usage_quantiles_daily} from the events already stored, one day at a time, with the
+ * same sketches ingest maintains. The bucket mapping and the sketch encoding are copied from
+ * {@code QuantileSketch} as of this version rather than called, so later changes to the application
+ * cannot change what this migration writes.
+ */
+public class V15__Backfill_usage_quantiles extends BaseJavaMigration {
+
+    private static final String EVENTS =
+        "SELECT CAST(timestamp AS date) AS day, customer_id, vendor, model, total_tokens, total_cost, audio_minutes " +
+        "FROM usage_events ORDER BY timestamp";
+
+    private static final String INSERT =
+        "INSERT INTO usage_quantiles_daily (day, customer_id, vendor, model, tokens, cost, audio_minutes) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (customer_id, day, vendor, model) DO NOTHING";
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double MIN_VALUE = 1e-9;
+    private static final double LOG_GAMMA = Math.log((1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY));
+    private static final byte ENCODING = 0;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement select = context.getConnection().createStatement();
+             PreparedStatement insert = context.getConnection().prepareStatement(INSERT)) {
+            select.setFetchSize(10000);
+            // (customer_id, vendor, model) -> {tokens, cost, audio minutes} sketches of the current day
+            Map<List<Object>, Sketch[]> sketches = new LinkedHashMap<>();
+            LocalDate day = null;
+            try (ResultSet rs = select.executeQuery(EVENTS)) {
+                while (rs.next()) {
+                    LocalDate eventDay = rs.getDate("day").toLocalDate();
+                    if (!eventDay.equals(day)) {
+                        flush(insert, day, sketches);
+                        day = eventDay;
+                    }
+                    List<Object> key = List.of(rs.getLong("customer_id"), rs.getString("vendor"), rs.getString("model"));
+                    Sketch[] entry = sketches.computeIfAbsent(key, k -> new Sketch[] { new Sketch(), new Sketch(), new Sketch() });
+                    Long tokens = rs.getObject("total_tokens", Long.class);
+                    BigDecimal cost = rs.getBigDecimal("total_cost");
+                    BigDecimal audioMinutes = rs.getBigDecimal("audio_minutes");
+                    if (tokens != null) {
+                        entry[0].offer(tokens);
+                    }
+                    if (cost != null) {
+                        entry[1].offer(cost.doubleValue());
+                    }
+                    if (audioMinutes != null) {
+                        entry[2].offer(audioMinutes.doubleValue());
+                    }
+                }
+            }
+            flush(insert, day, sketches);
+        }
+    }
+
+    private static void flush(PreparedStatement insert, LocalDate day, Map<List<Object>, Sketch[]> sketches)
+            throws SQLException {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<List<Object>, Sketch[]> entry : sketches.entrySet()) {
+            insert.setDate(1, Date.valueOf(day));
+            insert.setLong(2, (Long) entry.getKey().get(0));
+            insert.setString(3, (String) entry.getKey().get(1));
+            insert.setString(4, (String) entry.getKey().get(2));
+            insert.setBytes(5, entry.getValue()[0].toBytes());
+            insert.setBytes(6, entry.getValue()[1].toBytes());
+            insert.setBytes(7, entry.getValue()[2].toBytes());
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        sketches.clear();
+    }
+
+    /** Logarithmic buckets: bucket {@code i} counts the values in {@code (gamma^(i-1), gamma^i]}. */
+    private static final class Sketch {
+        private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+        private long zeroCount;
+
+        private void offer(double value) {
+            if (value < MIN_VALUE) {
+                zeroCount++;
+            } else {
+                buckets.merge((int) Math.ceil(Math.log(value) / LOG_GAMMA), 1L, Long::sum);
+            }
+        }
+
+        /** Zero count, bucket count, then zigzag index deltas and counts, all varints. */
+        private byte[] toBytes() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(8 + buckets.size() * 3);
+            out.write(ENCODING);
+            writeVarint(out, zeroCount);
+            writeVarint(out, buckets.size());
+            int previous = 0;
+            for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+                int delta = bucket.getKey() - previous;
+                writeVarint(out, ((delta << 1) ^ (delta >> 31)) & 0xffffffffL);
+                writeVarint(out, bucket.getValue());
+                previous = bucket.getKey();
+            }
+            return out.toByteArray();
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7fL) != 0) {
+                out.write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
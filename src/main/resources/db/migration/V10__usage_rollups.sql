@@ -0,0 +1,56 @@
+-- Pre-aggregated usage per hour and per day. Rows are upserted in the same transaction that
+-- writes the events (UsageRollupService), so analytics over whole hours or days can read a few
+-- thousand buckets instead of every event. Nullable event dimensions are stored as '' so they can
+-- be part of the key.
+CREATE TABLE usage_rollup_hourly (
+    bucket timestamp(6) NOT NULL,
+    customer_id bigint NOT NULL,
+    user_id bigint NOT NULL,
+    vendor varchar(255) NOT NULL,
+    model varchar(255) NOT NULL,
+    api_type varchar(255) NOT NULL,
+    region varchar(255) NOT NULL DEFAULT '',
+    endpoint varchar(255) NOT NULL DEFAULT '',
+    events bigint NOT NULL,
+    tokens bigint NOT NULL,
+    cost numeric(20,6) NOT NULL,
+    revenue numeric(20,6) NOT NULL,
+    profit numeric(20,6) NOT NULL,
+    CONSTRAINT usage_rollup_hourly_pkey PRIMARY KEY (bucket, customer_id, user_id, vendor, model, api_type, region, endpoint)
+);
+
+CREATE TABLE usage_rollup_daily (
+    bucket timestamp(6) NOT NULL,
+    customer_id bigint NOT NULL,
+    user_id bigint NOT NULL,
+    vendor varchar(255) NOT NULL,
+    model varchar(255) NOT NULL,
+    api_type varchar(255) NOT NULL,
+    region varchar(255) NOT NULL DEFAULT '',
+    endpoint varchar(255) NOT NULL DEFAULT '',
+    events bigint NOT NULL,
+    tokens bigint NOT NULL,
+    cost numeric(20,6) NOT NULL,
+    revenue numeric(20,6) NOT NULL,
+    profit numeric(20,6) NOT NULL,
+    CONSTRAINT usage_rollup_daily_pkey PRIMARY KEY (bucket, customer_id, user_id, vendor, model, api_type, region, endpoint)
+);
+
+CREATE INDEX idx_usage_rollup_hourly_customer_bucket ON usage_rollup_hourly (customer_id, bucket);
+CREATE INDEX idx_usage_rollup_daily_customer_bucket ON usage_rollup_daily (customer_id, bucket);
+
+INSERT INTO usage_rollup_hourly (bucket, customer_id, user_id, vendor, model, api_type, region, endpoint,
+                                 events, tokens, cost, revenue, profit)
+SELECT date_trunc('hour', timestamp), customer_id, user_id, vendor, model, api_type,
+       COALESCE(region, ''), COALESCE(endpoint, ''),
+       COUNT(*), COALESCE(SUM(total_tokens), 0), COALESCE(SUM(total_cost), 0),
+       COALESCE(SUM(revenue), 0), COALESCE(SUM(profit), 0)
+FROM usage_events
+GROUP BY 1, 2, 3, 4, 5, 6, 7, 8;
+
+INSERT INTO usage_rollup_daily (bucket, customer_id, user_id, vendor, model, api_type, region, endpoint,
+                                events, tokens, cost, revenue, profit)
+SELECT date_trunc('day', bucket), customer_id, user_id, vendor, model, api_type, region, endpoint,
+       SUM(events), SUM(tokens), SUM(cost), SUM(revenue), SUM(profit)
+FROM usage_rollup_hourly
+GROUP BY 1, 2, 3, 4, 5, 6, 7, 8;
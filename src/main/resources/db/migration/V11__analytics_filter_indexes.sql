@@ -0,0 +1,8 @@
+-- Analytics narrowed to one user or vendor of a customer read only that slice of the range
+CREATE INDEX idx_usage_events_customer_user_ts ON usage_events (customer_id, user_id, timestamp);
+CREATE INDEX idx_usage_events_customer_vendor_ts ON usage_events (customer_id, vendor, timestamp);
+
+CREATE INDEX idx_usage_rollup_hourly_customer_user_bucket ON usage_rollup_hourly (customer_id, user_id, bucket);
+CREATE INDEX idx_usage_rollup_hourly_customer_vendor_bucket ON usage_rollup_hourly (customer_id, vendor, bucket);
+CREATE INDEX idx_usage_rollup_daily_customer_user_bucket ON usage_rollup_daily (customer_id, user_id, bucket);
+CREATE INDEX idx_usage_rollup_daily_customer_vendor_bucket ON usage_rollup_daily (customer_id, vendor, bucket);
@@ -0,0 +1,14 @@
+-- HyperLogLog sketches (HyperLogLog.toBytes) of the distinct users and sessions per customer and
+-- day: one row for all of the customer's events (dimension 'all', value '') and one per vendor and
+-- per model. Maintained at ingest by UsageSketchService and backfilled by V13.
+CREATE TABLE usage_sketches_daily (
+    day date NOT NULL,
+    customer_id bigint NOT NULL,
+    dimension varchar(16) NOT NULL,
+    value varchar(255) NOT NULL,
+    users bytea NOT NULL,
+    sessions bytea NOT NULL,
+    CONSTRAINT usage_sketches_daily_pkey PRIMARY KEY (customer_id, day, dimension, value)
+);
+
+CREATE INDEX idx_usage_sketches_daily_day ON usage_sketches_daily (day);
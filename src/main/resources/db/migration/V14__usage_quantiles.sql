@@ -0,0 +1,15 @@
+-- Quantile sketches (QuantileSketch.toBytes) of the tokens, cost and audio minutes of single events
+-- per customer, day and model; vendor is kept alongside the model so vendor filters need no lookup.
+-- Maintained at ingest by UsageQuantileService and backfilled by V15.
+CREATE TABLE usage_quantiles_daily (
+    day date NOT NULL,
+    customer_id bigint NOT NULL,
+    vendor varchar(255) NOT NULL,
+    model varchar(255) NOT NULL,
+    tokens bytea NOT NULL,
+    cost bytea NOT NULL,
+    audio_minutes bytea NOT NULL,
+    CONSTRAINT usage_quantiles_daily_pkey PRIMARY KEY (customer_id, day, vendor, model)
+);
+
+CREATE INDEX idx_usage_quantiles_daily_day ON usage_quantiles_daily (day);
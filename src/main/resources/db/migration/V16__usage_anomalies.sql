@@ -0,0 +1,36 @@
+-- Per customer and metric (events, tokens, cost): exponentially weighted level of the daily value,
+-- a multiplicative factor per ISO day of week (seasonal[1] is Monday) and the exponentially weighted
+-- variance of the residual against level * factor, and the run of consecutive anomalies in one
+-- direction (positive for spikes). Maintained by UsageAnomalyService as days close.
+CREATE TABLE usage_anomaly_baselines (
+    customer_id bigint NOT NULL,
+    metric varchar(16) NOT NULL,
+    level double precision NOT NULL,
+    seasonal double precision[] NOT NULL,
+    variance double precision NOT NULL,
+    observations integer NOT NULL,
+    streak integer NOT NULL,
+    CONSTRAINT usage_anomaly_baselines_pkey PRIMARY KEY (customer_id, metric)
+);
+
+-- Days scored against the baselines that deviated by more than the threshold.
+CREATE TABLE usage_anomalies (
+    day date NOT NULL,
+    customer_id bigint NOT NULL,
+    metric varchar(16) NOT NULL,
+    type varchar(8) NOT NULL,
+    value double precision NOT NULL,
+    expected double precision NOT NULL,
+    score double precision NOT NULL,
+    CONSTRAINT usage_anomalies_pkey PRIMARY KEY (customer_id, day, metric)
+);
+
+CREATE INDEX idx_usage_anomalies_day ON usage_anomalies (day);
+
+-- The last day whose values have been folded into the baselines; null until the first run.
+CREATE TABLE usage_anomaly_progress (
+    id smallint PRIMARY KEY CHECK (id = 1),
+    last_day date
+);
+
+INSERT INTO usage_anomaly_progress (id, last_day) VALUES (1, NULL);
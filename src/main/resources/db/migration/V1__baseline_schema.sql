@@ -0,0 +1,84 @@
+-- Baseline schema as originally generated by Hibernate (ddl-auto=update).
+-- Existing databases are baselined at this version and skip this script.
+CREATE TABLE IF NOT EXISTS customers (
+    id bigserial NOT NULL,
+    active boolean NOT NULL,
+    address varchar(255),
+    contact_email varchar(255) NOT NULL,
+    contact_phone varchar(255),
+    created_at timestamp(6) NOT NULL,
+    customer_id varchar(255) NOT NULL,
+    markup_percentage float(53) NOT NULL,
+    organization_name varchar(255) NOT NULL,
+    updated_at timestamp(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_customers_customer_id UNIQUE (customer_id)
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id bigserial NOT NULL,
+    active boolean NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    department varchar(255),
+    email varchar(255) NOT NULL,
+    first_name varchar(255) NOT NULL,
+    last_name varchar(255) NOT NULL,
+    password varchar(255) NOT NULL,
+    role varchar(255),
+    updated_at timestamp(6) NOT NULL,
+    user_id varchar(255) NOT NULL,
+    customer_id bigint NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_users_customer FOREIGN KEY (customer_id) REFERENCES customers
+);
+
+CREATE TABLE IF NOT EXISTS usage_events (
+    id bigserial NOT NULL,
+    api_type varchar(255) NOT NULL,
+    audio_minutes numeric(38,2),
+    cached_tokens bigint,
+    created_at timestamp(6) NOT NULL,
+    currency varchar(255) NOT NULL,
+    endpoint varchar(255),
+    error_message TEXT,
+    event_id varchar(255) NOT NULL,
+    image_count integer,
+    input_cost numeric(10,6),
+    input_tokens bigint,
+    metadata TEXT,
+    model varchar(255) NOT NULL,
+    output_cost numeric(10,6),
+    output_tokens bigint,
+    profit numeric(10,6),
+    region varchar(255),
+    request_count integer,
+    request_id varchar(255),
+    revenue numeric(10,6),
+    session_id varchar(255),
+    status varchar(255),
+    timestamp timestamp(6) NOT NULL,
+    total_cost numeric(10,6),
+    total_tokens bigint,
+    vendor varchar(255) NOT NULL,
+    video_count integer,
+    customer_id bigint NOT NULL,
+    user_id bigint NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_usage_events_customer FOREIGN KEY (customer_id) REFERENCES customers,
+    CONSTRAINT fk_usage_events_user FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE IF NOT EXISTS vendor_pricing (
+    id bigserial NOT NULL,
+    active boolean NOT NULL,
+    api_type varchar(255) NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    currency varchar(255) NOT NULL,
+    metric_type varchar(255) NOT NULL,
+    model varchar(255) NOT NULL,
+    price_per_unit numeric(10,6) NOT NULL,
+    region varchar(255),
+    updated_at timestamp(6) NOT NULL,
+    vendor varchar(255) NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,23 @@
+-- Replace bigserial/IDENTITY key generation with pooled sequences so Hibernate can batch inserts.
+-- Ids are handed out with the pooled-lo optimizer: each nextval reserves the block
+-- [value, value + ${idAllocationSize}). The sequence increment must match
+-- spring.jpa.properties.llmtracker.id.allocation_size; change both together.
+CREATE SEQUENCE IF NOT EXISTS customers_seq INCREMENT BY ${idAllocationSize};
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY ${idAllocationSize};
+CREATE SEQUENCE IF NOT EXISTS usage_events_seq INCREMENT BY ${idAllocationSize};
+CREATE SEQUENCE IF NOT EXISTS vendor_pricing_seq INCREMENT BY ${idAllocationSize};
+
+SELECT setval('customers_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM customers), false);
+SELECT setval('users_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM users), false);
+SELECT setval('usage_events_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM usage_events), false);
+SELECT setval('vendor_pricing_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM vendor_pricing), false);
+
+ALTER TABLE customers ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE users ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE usage_events ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE vendor_pricing ALTER COLUMN id DROP DEFAULT;
+
+DROP SEQUENCE IF EXISTS customers_id_seq;
+DROP SEQUENCE IF EXISTS users_id_seq;
+DROP SEQUENCE IF EXISTS usage_events_id_seq;
+DROP SEQUENCE IF EXISTS vendor_pricing_id_seq;
@@ -0,0 +1,2 @@
+-- Write-ahead log replay checks which event ids are already committed before re-inserting them.
+CREATE INDEX IF NOT EXISTS idx_usage_events_event_id ON usage_events (event_id);
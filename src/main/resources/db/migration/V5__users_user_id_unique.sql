@@ -0,0 +1,3 @@
+-- Ingest auto-provisions users concurrently; the unique index lets a losing insert fail and re-read
+-- the winner instead of creating a second row for the same external user id.
+CREATE UNIQUE INDEX IF NOT EXISTS uk_users_user_id ON users (user_id);
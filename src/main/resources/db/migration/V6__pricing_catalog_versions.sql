@@ -0,0 +1,9 @@
+-- Every distinct set of active vendor_pricing rows gets a version number; priced events record the
+-- version they were priced with. Instances that load identical pricing share the same version.
+CREATE TABLE IF NOT EXISTS pricing_catalog_versions (
+    version BIGSERIAL PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL UNIQUE,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+ALTER TABLE usage_events ADD COLUMN IF NOT EXISTS pricing_version BIGINT;
@@ -0,0 +1,8 @@
+-- The event list filters on customer, user, vendor/model, api type and a time range and always
+-- orders by timestamp desc, id desc. These indexes let each filter combination be answered by an
+-- index range scan in list order instead of a full table scan and sort.
+CREATE INDEX IF NOT EXISTS idx_usage_events_customer_ts ON usage_events (customer_id, timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_usage_events_user_ts ON usage_events (user_id, timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_usage_events_ts ON usage_events (timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_usage_events_vendor_model_ts ON usage_events (vendor, model, timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_usage_events_api_type_ts ON usage_events (api_type, timestamp, id);
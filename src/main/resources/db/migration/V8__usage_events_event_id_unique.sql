@@ -0,0 +1,4 @@
+-- Events are looked up by their external id; the unique index backs that lookup and replaces the
+-- plain index used by write-ahead log replay.
+CREATE UNIQUE INDEX IF NOT EXISTS uk_usage_events_event_id ON usage_events (event_id);
+DROP INDEX IF EXISTS idx_usage_events_event_id;
@@ -0,0 +1,94 @@
+-- Range-partitions usage_events by month on timestamp so date-range queries only touch the months
+-- they cover and retention can drop whole partitions. Existing rows are copied into the new table
+-- in this migration; PartitionMaintenanceService keeps future months created and moves anything
+-- that lands in the default partition into its month.
+ALTER TABLE usage_events RENAME TO usage_events_unpartitioned;
+
+CREATE TABLE usage_events (
+    id bigint NOT NULL,
+    api_type varchar(255) NOT NULL,
+    audio_minutes numeric(38,2),
+    cached_tokens bigint,
+    created_at timestamp(6) NOT NULL,
+    currency varchar(255) NOT NULL,
+    endpoint varchar(255),
+    error_message TEXT,
+    event_id varchar(255) NOT NULL,
+    image_count integer,
+    input_cost numeric(10,6),
+    input_tokens bigint,
+    metadata TEXT,
+    model varchar(255) NOT NULL,
+    output_cost numeric(10,6),
+    output_tokens bigint,
+    profit numeric(10,6),
+    region varchar(255),
+    request_count integer,
+    request_id varchar(255),
+    revenue numeric(10,6),
+    session_id varchar(255),
+    status varchar(255),
+    timestamp timestamp(6) NOT NULL,
+    total_cost numeric(10,6),
+    total_tokens bigint,
+    vendor varchar(255) NOT NULL,
+    video_count integer,
+    customer_id bigint NOT NULL,
+    user_id bigint NOT NULL,
+    pricing_version bigint
+) PARTITION BY RANGE (timestamp);
+
+-- One partition per month from the oldest event up to three months ahead. Rows dated further in
+-- the future go to the default partition until their month is created.
+DO $$
+DECLARE
+    last_month date := date_trunc('month', now()) + interval '3 months';
+    next_month date := LEAST(date_trunc('month', COALESCE((SELECT MIN(timestamp) FROM usage_events_unpartitioned), now())),
+                        date_trunc('month', now()));
+BEGIN
+    WHILE next_month <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF usage_events FOR VALUES FROM (%L) TO (%L)',
+                       'usage_events_p' || to_char(next_month, 'YYYYMM'), next_month, next_month + interval '1 month');
+        next_month := next_month + interval '1 month';
+    END LOOP;
+END $$;
+
+CREATE TABLE usage_events_default PARTITION OF usage_events DEFAULT;
+
+INSERT INTO usage_events (id, api_type, audio_minutes, cached_tokens, created_at, currency, endpoint, error_message,
+                          event_id, image_count, input_cost, input_tokens, metadata, model, output_cost, output_tokens,
+                          profit, region, request_count, request_id, revenue, session_id, status, timestamp, total_cost,
+                          total_tokens, vendor, video_count, customer_id, user_id, pricing_version)
+SELECT id, api_type, audio_minutes, cached_tokens, created_at, currency, endpoint, error_message,
+       event_id, image_count, input_cost, input_tokens, metadata, model, output_cost, output_tokens,
+       profit, region, request_count, request_id, revenue, session_id, status, timestamp, total_cost,
+       total_tokens, vendor, video_count, customer_id, user_id, pricing_version
+FROM usage_events_unpartitioned;
+
+DROP TABLE usage_events_unpartitioned;
+
+-- Unique constraints on a partitioned table must include the partition key, so the primary key
+-- becomes (id, timestamp) and the event id index is unique per timestamp; the leading event_id
+-- column still serves lookups by id. Global event id uniqueness moves to usage_event_ids below.
+ALTER TABLE usage_events ADD CONSTRAINT usage_events_pkey PRIMARY KEY (id, timestamp);
+ALTER TABLE usage_events ADD CONSTRAINT fk_usage_events_customer FOREIGN KEY (customer_id) REFERENCES customers;
+ALTER TABLE usage_events ADD CONSTRAINT fk_usage_events_user FOREIGN KEY (user_id) REFERENCES users;
+CREATE UNIQUE INDEX uk_usage_events_event_id ON usage_events (event_id, timestamp);
+CREATE INDEX idx_usage_events_customer_ts ON usage_events (customer_id, timestamp, id);
+CREATE INDEX idx_usage_events_user_ts ON usage_events (user_id, timestamp, id);
+CREATE INDEX idx_usage_events_ts ON usage_events (timestamp, id);
+CREATE INDEX idx_usage_events_vendor_model_ts ON usage_events (vendor, model, timestamp, id);
+CREATE INDEX idx_usage_events_api_type_ts ON usage_events (api_type, timestamp, id);
+
+-- One row per stored event, keeping event ids unique across partitions. UsageEventIdService claims
+-- the ids in the transaction that inserts the events; the timestamp lets retention release a
+-- dropped month's ids.
+CREATE TABLE usage_event_ids (
+    event_id varchar(255) NOT NULL,
+    timestamp timestamp(6) NOT NULL,
+    CONSTRAINT usage_event_ids_pkey PRIMARY KEY (event_id)
+);
+
+INSERT INTO usage_event_ids (event_id, timestamp) SELECT event_id, timestamp FROM usage_events;
+
+CREATE INDEX idx_usage_event_ids_timestamp ON usage_event_ids (timestamp);
@@ -0,0 +1,61 @@
+package com.llmtracker.service;
+
+import com.llmtracker.dto.UsageEventResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventCursorTest {
+
+    @Test
+    void roundTripsTimestampAndId() {
+        assertRoundTrip(LocalDateTime.of(2025, 4, 12, 10, 15, 30, 123_456_000), 987_654_321_012L);
+        assertRoundTrip(LocalDateTime.of(2025, 4, 12, 10, 15), 1L);
+        assertRoundTrip(LocalDateTime.of(2026, 1, 1, 0, 0, 0, 1), Long.MAX_VALUE);
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        for (long id = 0; id < 1_000; id++) {
+            String token = EventCursor.encode(event(LocalDateTime.of(2025, 12, 31, 23, 59, 59, 999_999_000), id));
+            assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        }
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertInvalid("not base64!");
+        assertInvalid(base64("2025-04-12T10:15:30"));
+        assertInvalid(base64("yesterday|42"));
+        assertInvalid(base64("2025-04-12T10:15:30|forty-two"));
+        assertInvalid(base64("2025-04-12T10:15:30|"));
+    }
+
+    private static void assertRoundTrip(LocalDateTime timestamp, long id) {
+        EventCursor cursor = EventCursor.decode(EventCursor.encode(event(timestamp, id)));
+        assertEquals(timestamp, cursor.getTimestamp());
+        assertEquals(id, cursor.getId());
+    }
+
+    private static void assertInvalid(String token) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> EventCursor.decode(token));
+        assertEquals("Invalid cursor", e.getMessage());
+    }
+
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UsageEventResponse event(LocalDateTime timestamp, long id) {
+        UsageEventResponse event = new UsageEventResponse();
+        event.setTimestamp(timestamp);
+        event.setId(id);
+        return event;
+    }
+}
@@ -0,0 +1,77 @@
+package com.llmtracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static com.llmtracker.service.FixedPointMoney.INEXACT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FixedPointMoneyTest {
+
+    @Test
+    void toNanosKeepsEveryDigitUpToNanoPrecision() {
+        assertEquals(1_234L, FixedPointMoney.toNanos(new BigDecimal("0.000001234")));
+        assertEquals(12_500_000_000L, FixedPointMoney.toNanos(new BigDecimal("12.5")));
+        assertEquals(-30_000_000L, FixedPointMoney.toNanos(new BigDecimal("-0.03")));
+        assertEquals(1_000_000_000_000L, FixedPointMoney.toNanos(new BigDecimal("1E+3")));
+        assertEquals(1_000_000_000L, FixedPointMoney.toNanos(new BigDecimal("1.000000000000")));
+    }
+
+    @Test
+    void toNanosRefusesAmountsItCannotHoldExactly() {
+        assertEquals(INEXACT, FixedPointMoney.toNanos(new BigDecimal("0.0000000001")));
+        assertEquals(INEXACT, FixedPointMoney.toNanos(new BigDecimal("1000000000")));
+    }
+
+    @Test
+    void multiplyReportsOverflowAsInexact() {
+        assertEquals(-12L, FixedPointMoney.multiply(-3L, 4L));
+        assertEquals(INEXACT, FixedPointMoney.multiply(Long.MAX_VALUE / 2, 3L));
+        assertEquals(INEXACT, FixedPointMoney.multiply(-(1L << 62), 2L));
+        assertEquals(INEXACT, FixedPointMoney.multiply(INEXACT, 1L));
+        assertEquals(INEXACT, FixedPointMoney.multiply(1L, INEXACT));
+    }
+
+    @Test
+    void addReportsOverflowAsInexact() {
+        assertEquals(5L, FixedPointMoney.add(7L, -2L));
+        assertEquals(INEXACT, FixedPointMoney.add(Long.MAX_VALUE, 1L));
+        assertEquals(INEXACT, FixedPointMoney.add(-Long.MAX_VALUE, -1L));
+        assertEquals(INEXACT, FixedPointMoney.add(INEXACT, 0L));
+    }
+
+    @Test
+    void multiplyByDecimalIsExactOnlyWithinNanoPrecision() {
+        assertEquals(15_000_000L, FixedPointMoney.multiply(6_000_000L, new BigDecimal("2.5")));
+        assertEquals(600_000_000L, FixedPointMoney.multiply(6_000_000L, new BigDecimal("1E+2")));
+        assertEquals(INEXACT, FixedPointMoney.multiply(7L, new BigDecimal("0.5")));
+        assertEquals(INEXACT, FixedPointMoney.multiply(6_000_000L, new BigDecimal("0.3333333333")));
+        assertEquals(INEXACT, FixedPointMoney.multiply(INEXACT, BigDecimal.ONE));
+    }
+
+    @Test
+    void roundHalfUpRoundsHalvesAwayFromZero() {
+        assertEquals(1_234_568L, FixedPointMoney.roundHalfUp(1_234_567_500L, 9, 6));
+        assertEquals(1_234_567L, FixedPointMoney.roundHalfUp(1_234_567_499L, 9, 6));
+        assertEquals(-2L, FixedPointMoney.roundHalfUp(-1_500L, 3, 0));
+        assertEquals(-1L, FixedPointMoney.roundHalfUp(-1_499L, 3, 0));
+        assertEquals(INEXACT, FixedPointMoney.roundHalfUp(INEXACT, 9, 6));
+    }
+
+    @Test
+    void matchesBigDecimalForTokenPricing() {
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal pricePerToken = BigDecimal.valueOf(random.nextInt(100_000), 9);
+            long tokens = random.nextInt(2_000_000);
+
+            long nanos = FixedPointMoney.multiply(FixedPointMoney.toNanos(pricePerToken), tokens);
+            BigDecimal cost = FixedPointMoney.toDecimal(FixedPointMoney.roundHalfUp(nanos, FixedPointMoney.SCALE, 6), 6);
+
+            assertEquals(pricePerToken.multiply(BigDecimal.valueOf(tokens)).setScale(6, RoundingMode.HALF_UP), cost);
+        }
+    }
+}
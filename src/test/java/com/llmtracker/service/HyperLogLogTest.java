@@ -0,0 +1,128 @@
+package com.llmtracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void smallSketchRoundTripsSparse() {
+        HyperLogLog sketch = sketchOf(0, 100);
+
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(1, bytes[0]);
+        assertEquals(0, (bytes.length - 1) % 3);
+        assertEquals(sketch, HyperLogLog.fromBytes(bytes));
+    }
+
+    @Test
+    void largeSketchRoundTripsDense() {
+        HyperLogLog sketch = sketchOf(0, 100_000);
+
+        byte[] bytes = sketch.toBytes();
+
+        assertEquals(0, bytes[0]);
+        assertEquals(1 + (1 << HyperLogLog.PRECISION), bytes.length);
+        assertEquals(sketch, HyperLogLog.fromBytes(bytes));
+    }
+
+    @Test
+    void emptySketchRoundTrips() {
+        HyperLogLog sketch = new HyperLogLog();
+
+        assertArrayEquals(new byte[] { 1 }, sketch.toBytes());
+        assertEquals(sketch, HyperLogLog.fromBytes(sketch.toBytes()));
+        assertEquals(0, sketch.estimate());
+    }
+
+    @Test
+    void unknownEncodingIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[] { 7 }));
+    }
+
+    @Test
+    void mergeIsIdempotent() {
+        HyperLogLog sketch = sketchOf(0, 5_000);
+        HyperLogLog other = sketchOf(2_500, 7_500);
+
+        assertTrue(sketch.merge(other));
+        HyperLogLog merged = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertFalse(sketch.merge(other));
+        assertFalse(sketch.merge(other.toBytes()));
+        assertFalse(sketch.merge(merged));
+        assertEquals(merged, sketch);
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnion() {
+        HyperLogLog first = sketchOf(0, 3_000);
+        HyperLogLog second = sketchOf(1_000, 8_000);
+        HyperLogLog fromBytes = HyperLogLog.fromBytes(second.toBytes());
+
+        first.merge(second);
+        fromBytes.merge(sketchOf(0, 3_000).toBytes());
+
+        assertEquals(sketchOf(0, 8_000), first);
+        assertEquals(first, fromBytes);
+    }
+
+    @Test
+    void estimateStaysWithinErrorFromTenToOneMillion() {
+        for (int distinct = 10; distinct <= 1_000_000; distinct *= 10) {
+            long estimate = sketchOf(0, distinct).estimate();
+            double error = Math.abs(estimate - distinct) / (double) distinct;
+            assertTrue(error <= 4 * HyperLogLog.RELATIVE_STANDARD_ERROR,
+                       distinct + " distinct values estimated as " + estimate);
+        }
+    }
+
+    @Test
+    void stringsAndDuplicatesAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 1_000; i++) {
+                sketch.offer("session-" + i);
+            }
+        }
+
+        double error = Math.abs(sketch.estimate() - 1_000) / 1_000.0;
+        assertTrue(error <= 4 * HyperLogLog.RELATIVE_STANDARD_ERROR, "estimated " + sketch.estimate());
+    }
+
+    @Test
+    void hashWithNoBitsBelowTheIndexTakesTheHighestRank() {
+        // The finalizer maps 0 to 0: register 0 and the 52 bits below the index are all zero.
+        HyperLogLog sketch = new HyperLogLog();
+        sketch.offer(0L);
+
+        assertArrayEquals(new byte[] { 1, 0, 0, 53 }, sketch.toBytes());
+        assertEquals(1, sketch.estimate());
+    }
+
+    @Test
+    void highestRankSurvivesDenseEncodingAndEstimate() {
+        HyperLogLog sketch = sketchOf(1, 100_000);
+        sketch.offer(0L);
+
+        HyperLogLog copy = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch, copy);
+        double error = Math.abs(copy.estimate() - 100_000) / 100_000.0;
+        assertTrue(error <= 4 * HyperLogLog.RELATIVE_STANDARD_ERROR, "estimated " + copy.estimate());
+    }
+
+    private static HyperLogLog sketchOf(long from, long to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long value = from; value < to; value++) {
+            sketch.offer(value);
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,107 @@
+package com.llmtracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+    @Test
+    void valuesBelowOneRoundTripThroughNegativeBucketIndexes() {
+        QuantileSketch sketch = sketchOf(List.of(0.0, 1e-12, 0.0004, 0.013, 0.5, 0.999, 1.0, 3.0, 1250.0));
+
+        QuantileSketch copy = QuantileSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch, copy);
+        assertEquals(sketch.getCount(), copy.getCount());
+        for (double q : new double[] { 0, 0.25, 0.5, 0.75, 1 }) {
+            assertEquals(sketch.quantile(q), copy.quantile(q));
+        }
+        assertEquals(0.0, copy.quantile(0.2));
+    }
+
+    @Test
+    void emptySketchHasNoQuantiles() {
+        QuantileSketch sketch = QuantileSketch.fromBytes(new QuantileSketch().toBytes());
+
+        assertTrue(sketch.isEmpty());
+        assertNull(sketch.quantile(0.5));
+    }
+
+    @Test
+    void unknownEncodingIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(new byte[] { 9, 0, 0 }));
+    }
+
+    @Test
+    void mergeEqualsSketchOfConcatenatedInput() {
+        Random random = new Random(42);
+        List<Double> first = logNormal(random, 20_000);
+        List<Double> second = logNormal(random, 5_000);
+        List<Double> both = new ArrayList<>(first);
+        both.addAll(second);
+
+        QuantileSketch merged = sketchOf(first);
+        merged.merge(sketchOf(second));
+        QuantileSketch mergedBytes = QuantileSketch.fromBytes(sketchOf(first).toBytes());
+        mergedBytes.merge(sketchOf(second).toBytes());
+
+        QuantileSketch expected = sketchOf(both);
+        assertEquals(expected, merged);
+        assertEquals(expected, mergedBytes);
+        assertEquals(both.size(), merged.getCount());
+        assertEquals(both.size(), mergedBytes.getCount());
+    }
+
+    @Test
+    void percentilesOfCostsStayWithinRelativeAccuracy() {
+        assertWithinAccuracy(logNormal(new Random(7), 100_000));
+    }
+
+    @Test
+    void percentilesOfTokenCountsStayWithinRelativeAccuracy() {
+        Random random = new Random(11);
+        List<Double> tokens = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            tokens.add((double) (1 + random.nextInt(random.nextInt(10) == 0 ? 100_000 : 2_000)));
+        }
+        assertWithinAccuracy(tokens);
+    }
+
+    private static void assertWithinAccuracy(List<Double> values) {
+        QuantileSketch sketch = sketchOf(values);
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).toArray();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            double estimate = sketch.quantile(q);
+            assertTrue(Math.abs(estimate - exact) <= QuantileSketch.RELATIVE_ACCURACY * exact * (1 + 1e-9),
+                       "p" + Math.round(q * 100) + " estimated " + estimate + " for " + exact);
+        }
+    }
+
+    /** Spans several decades on both sides of 1, like per-event costs. */
+    private static List<Double> logNormal(Random random, int n) {
+        List<Double> values = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            values.add(Math.exp(random.nextGaussian() * 2.5 - 3));
+        }
+        return values;
+    }
+
+    private static QuantileSketch sketchOf(List<Double> values) {
+        QuantileSketch sketch = new QuantileSketch();
+        values.forEach(sketch::offer);
+        return sketch;
+    }
+}
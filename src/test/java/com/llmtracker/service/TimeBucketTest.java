@@ -0,0 +1,70 @@
+package com.llmtracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimeBucketTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 4, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 4, 30, 23, 59, 59);
+
+    @Test
+    void countIncludesPartialBucketsAtBothEnds() {
+        assertEquals(720, TimeBucket.HOURLY.count(START, END));
+        assertEquals(30, TimeBucket.DAILY.count(START, END));
+        // 2025-04-01 is a Tuesday and 2025-04-30 a Wednesday: weeks of Mar 31, Apr 7, 14, 21 and 28
+        assertEquals(5, TimeBucket.WEEKLY.count(START, END));
+        assertEquals(1, TimeBucket.MONTHLY.count(START, END));
+    }
+
+    @Test
+    void countOfASingleInstantIsOne() {
+        LocalDateTime instant = LocalDateTime.of(2025, 4, 12, 10, 15);
+        for (TimeBucket bucket : TimeBucket.values()) {
+            assertEquals(1, bucket.count(instant, instant), bucket.getPeriod());
+        }
+    }
+
+    @Test
+    void countCrossesYearBoundaries() {
+        LocalDateTime start = LocalDateTime.of(2024, 12, 31, 23, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 1, 1, 0, 30);
+
+        assertEquals(2, TimeBucket.HOURLY.count(start, end));
+        assertEquals(2, TimeBucket.DAILY.count(start, end));
+        assertEquals(1, TimeBucket.WEEKLY.count(start, end));
+        assertEquals(2, TimeBucket.MONTHLY.count(start, end));
+    }
+
+    @Test
+    void resolveKeepsTheRequestedPeriodWithinMaxPoints() {
+        assertEquals(TimeBucket.HOURLY, TimeBucket.resolve("hourly", START, END, 720));
+        assertEquals(TimeBucket.DAILY, TimeBucket.resolve("daily", START, END, 30));
+        assertEquals(TimeBucket.WEEKLY, TimeBucket.resolve("weekly", START, END, 5));
+    }
+
+    @Test
+    void resolveCoarsensUntilTheRangeFits() {
+        assertEquals(TimeBucket.DAILY, TimeBucket.resolve("hourly", START, END, 719));
+        assertEquals(TimeBucket.WEEKLY, TimeBucket.resolve("hourly", START, END, 10));
+        assertEquals(TimeBucket.MONTHLY, TimeBucket.resolve("daily", START, END, 4));
+    }
+
+    @Test
+    void resolveFallsBackToMonthlyForAnyRange() {
+        LocalDateTime decadeEnd = START.plusYears(10);
+        assertEquals(TimeBucket.MONTHLY, TimeBucket.resolve("hourly", START, decadeEnd, 1));
+    }
+
+    @Test
+    void periodNamesAreCaseInsensitiveAndDefaultToDaily() {
+        assertEquals(TimeBucket.WEEKLY, TimeBucket.resolve(" Weekly ", START, END, 1_000));
+        assertEquals(TimeBucket.DAILY, TimeBucket.resolve(null, START, END, 1_000));
+        assertEquals(TimeBucket.DAILY, TimeBucket.resolve("", START, END, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> TimeBucket.resolve("yearly", START, END, 1_000));
+    }
+}
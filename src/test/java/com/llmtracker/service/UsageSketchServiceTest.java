@@ -0,0 +1,55 @@
+package com.llmtracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UsageSketchServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 4, 12);
+
+    @Test
+    void addCountsEachEventUnderItsCustomerVendorAndModel() {
+        Map<UsageSketchService.Key, UsageSketchService.Sketches> sketches = new TreeMap<>();
+        UsageSketchService.add(sketches, DAY, 1L, 10L, "openai", "gpt-4o", "s1");
+        UsageSketchService.add(sketches, DAY, 1L, 11L, "openai", "gpt-4o-mini", "s2");
+        UsageSketchService.add(sketches, DAY, 1L, 10L, "anthropic", "claude-3-5-sonnet", "s1");
+        UsageSketchService.add(sketches, DAY, 1L, 10L, "openai", "gpt-4o", null);
+
+        assertEquals(6, sketches.size());
+        assertCounts(sketches, UsageSketchService.ALL, "", 2, 2);
+        assertCounts(sketches, UsageSketchService.VENDOR, "openai", 2, 2);
+        assertCounts(sketches, UsageSketchService.VENDOR, "anthropic", 1, 1);
+        assertCounts(sketches, UsageSketchService.MODEL, "gpt-4o", 1, 1);
+        assertCounts(sketches, UsageSketchService.MODEL, "gpt-4o-mini", 1, 1);
+    }
+
+    @Test
+    void rowHoldsTheKeyAndBothSketches() {
+        Map<UsageSketchService.Key, UsageSketchService.Sketches> sketches = new TreeMap<>();
+        UsageSketchService.add(sketches, DAY, 7L, 70L, "openai", "gpt-4o", null);
+        UsageSketchService.Key key = new UsageSketchService.Key(7L, DAY, UsageSketchService.ALL, "");
+
+        Object[] row = key.row(sketches.get(key));
+
+        assertEquals(Date.valueOf(DAY), row[0]);
+        assertEquals(7L, row[1]);
+        assertEquals(UsageSketchService.ALL, row[2]);
+        assertEquals("", row[3]);
+        assertEquals(1, HyperLogLog.fromBytes((byte[]) row[4]).estimate());
+        assertEquals(0, HyperLogLog.fromBytes((byte[]) row[5]).estimate());
+    }
+
+    private static void assertCounts(Map<UsageSketchService.Key, UsageSketchService.Sketches> sketches,
+                                     String dimension, String value, long users, long sessions) {
+        UsageSketchService.Key key = new UsageSketchService.Key(1L, DAY, dimension, value);
+        Object[] row = key.row(sketches.get(key));
+        assertEquals(users, HyperLogLog.fromBytes((byte[]) row[4]).estimate(), dimension + " " + value + " users");
+        assertEquals(sessions, HyperLogLog.fromBytes((byte[]) row[5]).estimate(), dimension + " " + value + " sessions");
+    }
+}